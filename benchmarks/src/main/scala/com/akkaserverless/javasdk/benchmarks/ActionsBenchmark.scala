@@ -0,0 +1,104 @@
+/*
+ * Copyright 2021 Lightbend Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.akkaserverless.javasdk.benchmarks
+
+import akka.NotUsed
+import akka.actor.ActorSystem
+import akka.stream.Materializer
+import akka.stream.javadsl.Source
+import akka.stream.scaladsl.Sink
+import com.akkaserverless.javasdk.action.{ Action, MessageEnvelope }
+import com.akkaserverless.javasdk.actionspec.ActionspecApi
+import com.akkaserverless.javasdk.impl.AnySupport
+import com.akkaserverless.javasdk.impl.action.{ ActionEffectImpl, ActionHandler, ActionService, ActionsImpl }
+import com.akkaserverless.protocol.action.{ ActionCommand, ActionResponse }
+import com.google.protobuf.any.{ Any => ScalaPbAny }
+import org.openjdk.jmh.annotations._
+
+import java.util.concurrent.TimeUnit
+
+object ActionsBenchmark {
+  private class EchoAction extends Action
+
+  /** Replies with the incoming field, the minimal amount of user code an action can have. */
+  private final class EchoActionHandler(system: ActorSystem) extends ActionHandler[EchoAction](new EchoAction) {
+    override def handleUnary(commandName: String, message: MessageEnvelope[Any]): Action.Effect[_] =
+      echo(message)
+
+    override def handleStreamedOut(
+        commandName: String,
+        message: MessageEnvelope[Any]): Source[Action.Effect[_], NotUsed] =
+      Source.single[Action.Effect[_]](echo(message))
+
+    // replies with the field of the last incoming message
+    override def handleStreamedIn(
+        commandName: String,
+        stream: Source[MessageEnvelope[Any], NotUsed]): Action.Effect[_] =
+      ActionEffectImpl.AsyncEffect(
+        stream.asScala.runWith(Sink.last)(Materializer(system)).map(echo)(system.dispatcher),
+        Nil)
+
+    override def handleStreamed(
+        commandName: String,
+        stream: Source[MessageEnvelope[Any], NotUsed]): Source[Action.Effect[_], NotUsed] =
+      stream.asScala.map[Action.Effect[_]](echo).asJava
+
+    private def echo(message: MessageEnvelope[Any]): Action.Effect[Any] = {
+      val in = message.payload().asInstanceOf[ActionspecApi.In]
+      ActionEffectImpl.ReplyEffect(ActionspecApi.Out.newBuilder().setField(in.getField).build(), None, Nil)
+    }
+  }
+}
+
+/**
+ * Measures the per-request cost of `ActionsImpl.handleUnary`: handler creation, context and metadata creation, payload
+ * decoding and effect to response conversion.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.Throughput))
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+class ActionsBenchmark {
+  import ActionsBenchmark._
+
+  private var system: ActorSystem = _
+  private var actions: ActionsImpl = _
+  private var unaryCommand: ActionCommand = _
+
+  @Setup
+  def setup(): Unit = {
+    system = BenchmarkSupport.createSystem("ActionsBenchmark")
+
+    val serviceDescriptor = ActionspecApi.getDescriptor.findServiceByName("ActionSpecService")
+    val anySupport = new AnySupport(Array(ActionspecApi.getDescriptor), getClass.getClassLoader)
+    val service = new ActionService(_ => new EchoActionHandler(system), serviceDescriptor, anySupport)
+    val services = Map(serviceDescriptor.getFullName -> service)
+    actions = new ActionsImpl(system, services, BenchmarkSupport.rootContext(services), BenchmarkSupport.configuration)
+
+    val payload = ScalaPbAny.fromJavaProto(
+      com.google.protobuf.Any.pack(ActionspecApi.In.newBuilder().setField("benchmark").build()))
+    unaryCommand = ActionCommand(serviceDescriptor.getFullName, "Unary", Some(payload))
+  }
+
+  @TearDown
+  def tearDown(): Unit = BenchmarkSupport.terminate(system)
+
+  @Benchmark
+  def handleUnary(): ActionResponse = BenchmarkSupport.await(actions.handleUnary(unaryCommand))
+}
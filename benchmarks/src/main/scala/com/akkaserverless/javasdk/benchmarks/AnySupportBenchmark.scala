@@ -0,0 +1,63 @@
+/*
+ * Copyright 2021 Lightbend Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.akkaserverless.javasdk.benchmarks
+
+import com.akkaserverless.javasdk.impl.AnySupport
+import com.example.valueentity.shoppingcart.ShoppingCartApi
+import com.google.protobuf.any.{ Any => ScalaPbAny }
+import com.google.protobuf.{ Any => JavaPbAny }
+import org.openjdk.jmh.annotations._
+
+import java.util.concurrent.TimeUnit
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.Throughput))
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+class AnySupportBenchmark {
+
+  private val anySupport = new AnySupport(Array(ShoppingCartApi.getDescriptor), getClass.getClassLoader)
+
+  private val message = ShoppingCartApi.AddLineItem
+    .newBuilder()
+    .setCartId("cart")
+    .setProductId("product")
+    .setName("name")
+    .setQuantity(10)
+    .build()
+
+  private val scalaPbAny: ScalaPbAny = anySupport.encodeScala(message)
+  private val javaPbAny: JavaPbAny = ScalaPbAny.toJavaProto(scalaPbAny)
+  private val primitiveAny: ScalaPbAny = anySupport.encodeScala("some-string-key")
+
+  @Benchmark
+  def decodeScalaPbAny(): Any = anySupport.decode(scalaPbAny)
+
+  @Benchmark
+  def decodeJavaPbAny(): Any = anySupport.decode(javaPbAny)
+
+  @Benchmark
+  def decodePrimitive(): Any = anySupport.decode(primitiveAny)
+
+  @Benchmark
+  def encodeScala(): ScalaPbAny = anySupport.encodeScala(message)
+
+  @Benchmark
+  def encodeJava(): JavaPbAny = anySupport.encodeJava(message)
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2021 Lightbend Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.akkaserverless.javasdk.benchmarks
+
+import akka.NotUsed
+import akka.actor.ActorSystem
+import akka.stream.scaladsl.{ Sink, Source }
+import com.akkaserverless.javasdk.AkkaServerlessRunner.Configuration
+import com.akkaserverless.javasdk.impl.ResolvedServiceCallFactory
+import com.akkaserverless.javasdk.{ Context, Service, ServiceCallFactory }
+import com.typesafe.config.{ Config, ConfigFactory }
+
+import scala.collection.immutable
+import scala.concurrent.duration._
+import scala.concurrent.{ Await, Future }
+
+/**
+ * Shared setup for the in-process benchmarks. Components are driven directly through their protocol implementations
+ * (the same entry points the gRPC handlers call) so that no networking is involved in the measurements.
+ */
+object BenchmarkSupport {
+
+  val Timeout: FiniteDuration = 10.seconds
+
+  val config: Config = ConfigFactory
+    .parseString("""
+      akka.loglevel = ERROR
+      akka.stdout-loglevel = ERROR
+    """)
+    .withFallback(ConfigFactory.load())
+
+  val configuration: Configuration =
+    Configuration(userFunctionInterface = "127.0.0.1", userFunctionPort = 8080, snapshotEvery = 100)
+
+  def createSystem(name: String): ActorSystem = ActorSystem(name, config)
+
+  def terminate(system: ActorSystem): Unit = Await.result(system.terminate(), Timeout)
+
+  def rootContext(services: Map[String, Service]): Context = new Context {
+    override val serviceCallFactory: ServiceCallFactory = new ResolvedServiceCallFactory(services)
+  }
+
+  /**
+   * Run one full entity stream (init, replayed events, commands) through the given protocol handler and wait for all
+   * replies.
+   */
+  def runStream[In, Out](messages: immutable.Seq[In])(handle: Source[In, NotUsed] => Source[Out, NotUsed])(implicit
+      system: ActorSystem): immutable.Seq[Out] =
+    await(handle(Source(messages)).runWith(Sink.seq))
+
+  def await[T](future: Future[T]): T = Await.result(future, Timeout)
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2021 Lightbend Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.akkaserverless.javasdk.benchmarks
+
+import akka.actor.ActorSystem
+import com.akkaserverless.javasdk.eventsourcedentity.{ CartEntity, CartEntityProvider, EventSourcedEntityContext }
+import com.akkaserverless.javasdk.impl.AnySupport
+import com.akkaserverless.javasdk.impl.eventsourcedentity.{
+  EventSourcedEntitiesImpl,
+  EventSourcedEntityService,
+  ResolvedEventSourcedEntityFactory
+}
+import com.akkaserverless.protocol.event_sourced_entity.{ EventSourcedStreamIn, EventSourcedStreamOut }
+import com.akkaserverless.testkit.eventsourcedentity.EventSourcedMessages._
+import com.example.shoppingcart.ShoppingCartApi
+import com.example.shoppingcart.domain.ShoppingCartDomain
+import org.openjdk.jmh.annotations._
+
+import java.util.concurrent.TimeUnit
+import scala.collection.immutable
+
+object EventSourcedEntitiesBenchmark {
+  final val CommandsPerStream = 100
+  final val EventsPerRecovery = 500
+}
+
+/**
+ * Measures the per-command cost of `EventSourcedEntitiesImpl.runEntity`, both for handling commands (decode, command
+ * handler, event handler, encoding events and reply) and for recovering from replayed events.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.Throughput))
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+class EventSourcedEntitiesBenchmark {
+  import EventSourcedEntitiesBenchmark._
+
+  private implicit var system: ActorSystem = _
+  private var entities: EventSourcedEntitiesImpl = _
+  private var commandStream: immutable.Seq[EventSourcedStreamIn] = _
+  private var recoveryStream: immutable.Seq[EventSourcedStreamIn] = _
+
+  @Setup
+  def setup(): Unit = {
+    system = BenchmarkSupport.createSystem("EventSourcedEntitiesBenchmark")
+
+    val provider = CartEntityProvider.of(new CartEntity(_))
+    val anySupport = new AnySupport(provider.additionalDescriptors, getClass.getClassLoader)
+    val factory = new ResolvedEventSourcedEntityFactory(
+      (context: EventSourcedEntityContext) => provider.newHandler(context),
+      anySupport.resolveServiceDescriptor(provider.serviceDescriptor))
+    val service = new EventSourcedEntityService(
+      factory,
+      provider.serviceDescriptor,
+      anySupport,
+      provider.entityType,
+      provider.options.snapshotEvery,
+      provider.options)
+    val serviceName = provider.serviceDescriptor.getFullName
+    val services = Map(serviceName -> service)
+    entities = new EventSourcedEntitiesImpl(
+      system,
+      services,
+      BenchmarkSupport.rootContext(services),
+      BenchmarkSupport.configuration)
+
+    commandStream = (init(serviceName, "cart") +: (1 to CommandsPerStream).map { id =>
+      command(id, "cart", "AddItem", addItem(s"product-${id % 10}", id))
+    }).map(EventSourcedStreamIn(_))
+
+    recoveryStream = (init(serviceName, "cart") +: (1 to EventsPerRecovery).map { sequence =>
+      event(sequence, itemAdded(s"product-${sequence % 10}", sequence))
+    } :+ command(1, "cart", "GetCart", ShoppingCartApi.GetShoppingCart.newBuilder.setCartId("cart").build))
+      .map(EventSourcedStreamIn(_))
+  }
+
+  @TearDown
+  def tearDown(): Unit = BenchmarkSupport.terminate(system)
+
+  @Benchmark
+  @OperationsPerInvocation(CommandsPerStream)
+  def handleCommands(): immutable.Seq[EventSourcedStreamOut] =
+    BenchmarkSupport.runStream(commandStream)(entities.handle)
+
+  @Benchmark
+  @OperationsPerInvocation(EventsPerRecovery)
+  def replayEvents(): immutable.Seq[EventSourcedStreamOut] =
+    BenchmarkSupport.runStream(recoveryStream)(entities.handle)
+
+  private def addItem(productId: String, quantity: Int): ShoppingCartApi.AddLineItem =
+    ShoppingCartApi.AddLineItem.newBuilder
+      .setCartId("cart")
+      .setProductId(productId)
+      .setName(productId)
+      .setQuantity(quantity)
+      .build
+
+  private def itemAdded(productId: String, quantity: Int): ShoppingCartDomain.ItemAdded =
+    ShoppingCartDomain.ItemAdded.newBuilder
+      .setItem(
+        ShoppingCartDomain.LineItem.newBuilder.setProductId(productId).setName(productId).setQuantity(quantity).build)
+      .build
+}
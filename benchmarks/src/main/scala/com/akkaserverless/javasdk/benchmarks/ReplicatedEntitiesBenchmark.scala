@@ -0,0 +1,113 @@
+/*
+ * Copyright 2021 Lightbend Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.akkaserverless.javasdk.benchmarks
+
+import akka.actor.ActorSystem
+import com.akkaserverless.javasdk.impl.AnySupport
+import com.akkaserverless.javasdk.impl.replicatedentity.{
+  ReplicatedEntitiesImpl,
+  ReplicatedEntityService,
+  ResolvedReplicatedEntityFactory
+}
+import com.akkaserverless.javasdk.replicatedentity.{ CartEntity, CartEntityProvider, ReplicatedEntityContext }
+import com.akkaserverless.protocol.replicated_entity._
+import com.akkaserverless.testkit.replicatedentity.ReplicatedEntityMessages._
+import com.example.replicatedentity.shoppingcart.ShoppingCartApi
+import com.example.replicatedentity.shoppingcart.domain.ShoppingCartDomain
+import org.openjdk.jmh.annotations._
+
+import java.util.concurrent.TimeUnit
+import scala.collection.immutable
+
+object ReplicatedEntitiesBenchmark {
+  final val CommandsPerStream = 100
+  final val EntriesInInitialState = 10000
+}
+
+/**
+ * Measures the per-command cost of `ReplicatedEntitiesImpl.runEntity` (including delta generation) and the cost of
+ * activating an entity from a large initial delta.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.Throughput))
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+class ReplicatedEntitiesBenchmark {
+  import ReplicatedEntitiesBenchmark._
+
+  private implicit var system: ActorSystem = _
+  private var entities: ReplicatedEntitiesImpl = _
+  private var commandStream: immutable.Seq[ReplicatedEntityStreamIn] = _
+  private var activationStream: immutable.Seq[ReplicatedEntityStreamIn] = _
+
+  @Setup
+  def setup(): Unit = {
+    system = BenchmarkSupport.createSystem("ReplicatedEntitiesBenchmark")
+
+    val provider = CartEntityProvider.of(new CartEntity(_))
+    val anySupport = new AnySupport(provider.additionalDescriptors, getClass.getClassLoader)
+    val factory = new ResolvedReplicatedEntityFactory(
+      (context: ReplicatedEntityContext) => provider.newHandler(context),
+      anySupport.resolveServiceDescriptor(provider.serviceDescriptor))
+    val service =
+      new ReplicatedEntityService(factory, provider.serviceDescriptor, anySupport, provider.entityType, provider.options)
+    val serviceName = provider.serviceDescriptor.getFullName
+    val services = Map(serviceName -> service)
+    entities = new ReplicatedEntitiesImpl(system, services, BenchmarkSupport.rootContext(services))
+
+    commandStream = (init(serviceName, "cart") +: (1 to CommandsPerStream).map { id =>
+      command(id, "cart", "AddItem", addItem(s"product-${id % 10}", id))
+    }).map(ReplicatedEntityStreamIn(_))
+
+    val initialState = ReplicatedEntityDelta.Delta.ReplicatedRegisterMap(
+      ReplicatedRegisterMapDelta(updated = (1 to EntriesInInitialState).map { id =>
+        val productId = s"product-$id"
+        ReplicatedRegisterMapEntryDelta(
+          Some(anySupport.encodeScala(productId)),
+          Some(ReplicatedRegisterDelta(Some(anySupport.encodeScala(lineItem(productId, id))))))
+      }))
+    val getCart = ShoppingCartApi.GetShoppingCart.newBuilder.setCartId("cart").build
+    activationStream =
+      Vector(init(serviceName, "cart", initialState), command(1, "cart", "GetCart", getCart))
+        .map(ReplicatedEntityStreamIn(_))
+  }
+
+  @TearDown
+  def tearDown(): Unit = BenchmarkSupport.terminate(system)
+
+  @Benchmark
+  @OperationsPerInvocation(CommandsPerStream)
+  def handleCommands(): immutable.Seq[ReplicatedEntityStreamOut] =
+    BenchmarkSupport.runStream(commandStream)(entities.handle)
+
+  @Benchmark
+  def activateLargeState(): immutable.Seq[ReplicatedEntityStreamOut] =
+    BenchmarkSupport.runStream(activationStream)(entities.handle)
+
+  private def addItem(productId: String, quantity: Int): ShoppingCartApi.AddLineItem =
+    ShoppingCartApi.AddLineItem.newBuilder
+      .setCartId("cart")
+      .setProductId(productId)
+      .setName(productId)
+      .setQuantity(quantity)
+      .build
+
+  private def lineItem(productId: String, quantity: Int): ShoppingCartDomain.LineItem =
+    ShoppingCartDomain.LineItem.newBuilder.setProductId(productId).setName(productId).setQuantity(quantity).build
+}
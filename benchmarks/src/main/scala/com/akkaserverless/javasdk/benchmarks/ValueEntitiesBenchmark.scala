@@ -0,0 +1,103 @@
+/*
+ * Copyright 2021 Lightbend Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.akkaserverless.javasdk.benchmarks
+
+import akka.actor.ActorSystem
+import com.akkaserverless.javasdk.impl.AnySupport
+import com.akkaserverless.javasdk.impl.valueentity.{
+  ResolvedValueEntityFactory,
+  ValueEntitiesImpl,
+  ValueEntityService
+}
+import com.akkaserverless.javasdk.valueentity.{ CartEntity, CartEntityProvider, ValueEntityContext }
+import com.akkaserverless.protocol.value_entity.{ ValueEntityStreamIn, ValueEntityStreamOut }
+import com.akkaserverless.testkit.valueentity.ValueEntityMessages._
+import com.example.valueentity.shoppingcart.ShoppingCartApi
+import org.openjdk.jmh.annotations._
+
+import java.util.concurrent.TimeUnit
+import scala.collection.immutable
+
+object ValueEntitiesBenchmark {
+  final val CommandsPerStream = 100
+}
+
+/**
+ * Measures the per-command cost of `ValueEntitiesImpl.runEntity`: decoding the command, invoking the handler, encoding
+ * the reply and the updated state.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.Throughput))
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+class ValueEntitiesBenchmark {
+  import ValueEntitiesBenchmark._
+
+  private implicit var system: ActorSystem = _
+  private var entities: ValueEntitiesImpl = _
+  private var updateStream: immutable.Seq[ValueEntityStreamIn] = _
+  private var readStream: immutable.Seq[ValueEntityStreamIn] = _
+
+  @Setup
+  def setup(): Unit = {
+    system = BenchmarkSupport.createSystem("ValueEntitiesBenchmark")
+
+    val provider = CartEntityProvider.of(new CartEntity(_))
+    val anySupport = new AnySupport(provider.additionalDescriptors, getClass.getClassLoader)
+    val factory = new ResolvedValueEntityFactory(
+      (context: ValueEntityContext) => provider.newHandler(context),
+      anySupport.resolveServiceDescriptor(provider.serviceDescriptor))
+    val service =
+      new ValueEntityService(factory, provider.serviceDescriptor, anySupport, provider.entityType, provider.options)
+    val serviceName = provider.serviceDescriptor.getFullName
+    val services = Map(serviceName -> service)
+    entities =
+      new ValueEntitiesImpl(system, services, BenchmarkSupport.rootContext(services), BenchmarkSupport.configuration)
+
+    updateStream = (init(serviceName, "cart") +: (1 to CommandsPerStream).map { id =>
+      command(id, "cart", "AddItem", addItem(s"product-${id % 10}", id))
+    }).map(ValueEntityStreamIn(_))
+
+    val getCart = ShoppingCartApi.GetShoppingCart.newBuilder.setCartId("cart").build
+    readStream = (init(serviceName, "cart") +: (1 to CommandsPerStream).map { id =>
+      command(id, "cart", "GetCart", getCart)
+    }).map(ValueEntityStreamIn(_))
+  }
+
+  @TearDown
+  def tearDown(): Unit = BenchmarkSupport.terminate(system)
+
+  @Benchmark
+  @OperationsPerInvocation(CommandsPerStream)
+  def updateCommands(): immutable.Seq[ValueEntityStreamOut] =
+    BenchmarkSupport.runStream(updateStream)(entities.handle)
+
+  @Benchmark
+  @OperationsPerInvocation(CommandsPerStream)
+  def readCommands(): immutable.Seq[ValueEntityStreamOut] =
+    BenchmarkSupport.runStream(readStream)(entities.handle)
+
+  private def addItem(productId: String, quantity: Int): ShoppingCartApi.AddLineItem =
+    ShoppingCartApi.AddLineItem.newBuilder
+      .setCartId("cart")
+      .setProductId(productId)
+      .setName(productId)
+      .setQuantity(quantity)
+      .build
+}
@@ -86,6 +86,13 @@ object ActionServiceSourceGenerator {
       Nil
   }
 
+  private def batchImports(commands: Iterable[ModelBuilder.Command]): Seq[String] = {
+    if (commands.exists(c => isStreamIn(c)))
+      "java.util.List" :: Nil
+    else
+      Nil
+  }
+
   private[codegen] def actionSource(service: ModelBuilder.ActionService): String = {
 
     val packageName = service.fqn.parent.javaPackage
@@ -165,7 +172,9 @@ object ActionServiceSourceGenerator {
     val imports = generateImports(
       service.commandTypes,
       packageName,
-      otherImports = Seq("com.akkaserverless.javasdk.action.Action") ++ streamImports(service.commands))
+      otherImports = Seq("com.akkaserverless.javasdk.action.Action") ++
+        streamImports(service.commands) ++
+        batchImports(service.commands))
 
     val methods = service.commands.map { cmd =>
       val methodName = cmd.fqn.name
@@ -182,10 +191,15 @@ object ActionServiceSourceGenerator {
            |public abstract Source<Effect<$outputType>, NotUsed> ${lowerFirst(
           methodName)}($inputTypeFullName $input);""".stripMargin
       } else if (isStreamIn(cmd)) {
+        val handlerName = lowerFirst(methodName)
         s"""
            |/** Handler for "$methodName". */
-           |public abstract Effect<$outputType> ${lowerFirst(
-          methodName)}(Source<$inputTypeFullName, NotUsed> ${input}Src);""".stripMargin
+           |public abstract Effect<$outputType> $handlerName(Source<$inputTypeFullName, NotUsed> ${input}Src);
+           |
+           |/** Handler for batches of "$methodName", passes the messages on to $handlerName one by one unless overridden. */
+           |public Effect<$outputType> ${handlerName}Batched(Source<List<$inputTypeFullName>, NotUsed> ${input}Batches) {
+           |  return $handlerName(${input}Batches.mapConcat(batch -> batch));
+           |}""".stripMargin
       } else {
         s"""
            |/** Handler for "$methodName". */
@@ -242,6 +256,17 @@ object ActionServiceSourceGenerator {
           |""".stripMargin
     }
 
+    val streamInBatchedCases = service.commands.filter(isStreamIn).map { cmd =>
+      val methodName = cmd.fqn.name
+      val inputTypeFullName = cmd.inputType.fullName
+
+      s"""|case "$methodName":
+          |  return action()
+          |           .${lowerFirst(methodName)}Batched(batches.map(batch ->
+          |               batch.stream().map(el -> ($inputTypeFullName) el.payload()).collect(Collectors.toList())));
+          |""".stripMargin
+    }
+
     val streamInOutCases = service.commands.filter(isStreamInOut).map { cmd =>
       val methodName = cmd.fqn.name
       val inputTypeFullName = cmd.inputType.fullName
@@ -260,7 +285,24 @@ object ActionServiceSourceGenerator {
         "akka.stream.javadsl.Source",
         "com.akkaserverless.javasdk.action.Action",
         "com.akkaserverless.javasdk.action.MessageEnvelope",
-        "com.akkaserverless.javasdk.impl.action.ActionHandler"))
+        "com.akkaserverless.javasdk.impl.action.ActionHandler") ++
+        batchImports(service.commands) ++
+        (if (streamInBatchedCases.isEmpty) Nil else "java.util.stream.Collectors" :: Nil))
+
+    // without streamed in commands the batches are left to the default, which passes them on to handleStreamedIn
+    val streamInBatchedHandler =
+      if (streamInBatchedCases.isEmpty) ""
+      else
+        s"""|
+            |  @Override
+            |  public Action.Effect<?> handleStreamedInBatched(String commandName, Source<List<MessageEnvelope<Object>>, NotUsed> batches) {
+            |    switch (commandName) {
+            |      ${Syntax.indent(streamInBatchedCases, 6)}
+            |      default:
+            |        throw new ActionHandler.HandlerNotFound(commandName);
+            |    }
+            |  }
+            |""".stripMargin
 
     s"""|$managedCodeCommentString
         |
@@ -300,7 +342,7 @@ object ActionServiceSourceGenerator {
         |        throw new ActionHandler.HandlerNotFound(commandName);
         |    }
         |  }
-        |
+        |$streamInBatchedHandler
         |  @Override
         |  public Source<Action.Effect<?>, NotUsed> handleStreamed(String commandName, Source<MessageEnvelope<Object>, NotUsed> stream) {
         |    switch (commandName) {
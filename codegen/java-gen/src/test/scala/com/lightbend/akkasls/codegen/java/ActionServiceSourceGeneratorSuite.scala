@@ -144,6 +144,7 @@ class ActionServiceSourceGeneratorSuite extends munit.FunSuite {
         |import akka.stream.javadsl.Source;
         |import com.akkaserverless.javasdk.action.Action;
         |import com.external.Empty;
+        |import java.util.List;
         |
         |/** An action. */
         |public abstract class AbstractMyServiceAction extends Action {
@@ -157,6 +158,11 @@ class ActionServiceSourceGeneratorSuite extends munit.FunSuite {
         |  /** Handler for "StreamedInputMethod". */
         |  public abstract Effect<Empty> streamedInputMethod(Source<ServiceOuterClass.MyRequest, NotUsed> myRequestSrc);
         |
+        |  /** Handler for batches of "StreamedInputMethod", passes the messages on to streamedInputMethod one by one unless overridden. */
+        |  public Effect<Empty> streamedInputMethodBatched(Source<List<ServiceOuterClass.MyRequest>, NotUsed> myRequestBatches) {
+        |    return streamedInputMethod(myRequestBatches.mapConcat(batch -> batch));
+        |  }
+        |
         |  /** Handler for "FullStreamedMethod". */
         |  public abstract Source<Effect<Empty>, NotUsed> fullStreamedMethod(Source<ServiceOuterClass.MyRequest, NotUsed> myRequestSrc);
         |}
@@ -184,6 +190,7 @@ class ActionServiceSourceGeneratorSuite extends munit.FunSuite {
         |import akka.stream.javadsl.Source;
         |import com.akkaserverless.javasdk.action.Action;
         |import com.external.Empty;
+        |import java.util.List;
         |
         |/** An action. */
         |public abstract class AbstractMyServiceAction extends Action {
@@ -197,6 +204,11 @@ class ActionServiceSourceGeneratorSuite extends munit.FunSuite {
         |  /** Handler for "StreamedInputMethod". */
         |  public abstract Effect<Empty> streamedInputMethod(Source<ServiceOuterClass.MyRequest, NotUsed> myRequestSrc);
         |
+        |  /** Handler for batches of "StreamedInputMethod", passes the messages on to streamedInputMethod one by one unless overridden. */
+        |  public Effect<Empty> streamedInputMethodBatched(Source<List<ServiceOuterClass.MyRequest>, NotUsed> myRequestBatches) {
+        |    return streamedInputMethod(myRequestBatches.mapConcat(batch -> batch));
+        |  }
+        |
         |  /** Handler for "FullStreamedMethod". */
         |  public abstract Source<Effect<Empty>, NotUsed> fullStreamedMethod(Source<ServiceOuterClass.MyRequest, NotUsed> myRequestSrc);
         |}
@@ -223,6 +235,8 @@ class ActionServiceSourceGeneratorSuite extends munit.FunSuite {
         |import com.akkaserverless.javasdk.action.MessageEnvelope;
         |import com.akkaserverless.javasdk.impl.action.ActionHandler;
         |import com.external.Empty;
+        |import java.util.List;
+        |import java.util.stream.Collectors;
         |
         |public class MyServiceActionHandler extends ActionHandler<MyServiceAction> {
         |
@@ -264,6 +278,18 @@ class ActionServiceSourceGeneratorSuite extends munit.FunSuite {
         |  }
         |
         |  @Override
+        |  public Action.Effect<?> handleStreamedInBatched(String commandName, Source<List<MessageEnvelope<Object>>, NotUsed> batches) {
+        |    switch (commandName) {
+        |      case "StreamedInputMethod":
+        |        return action()
+        |                 .streamedInputMethodBatched(batches.map(batch ->
+        |                     batch.stream().map(el -> (ServiceOuterClass.MyRequest) el.payload()).collect(Collectors.toList())));
+        |      default:
+        |        throw new ActionHandler.HandlerNotFound(commandName);
+        |    }
+        |  }
+        |
+        |  @Override
         |  public Source<Action.Effect<?>, NotUsed> handleStreamed(String commandName, Source<MessageEnvelope<Object>, NotUsed> stream) {
         |    switch (commandName) {
         |      case "FullStreamedMethod":
@@ -299,6 +325,8 @@ class ActionServiceSourceGeneratorSuite extends munit.FunSuite {
         |import com.akkaserverless.javasdk.action.MessageEnvelope;
         |import com.akkaserverless.javasdk.impl.action.ActionHandler;
         |import com.external.Empty;
+        |import java.util.List;
+        |import java.util.stream.Collectors;
         |
         |public class MyServiceActionHandler extends ActionHandler<MyServiceActionImpl> {
         |
@@ -340,6 +368,91 @@ class ActionServiceSourceGeneratorSuite extends munit.FunSuite {
         |  }
         |
         |  @Override
+        |  public Action.Effect<?> handleStreamedInBatched(String commandName, Source<List<MessageEnvelope<Object>>, NotUsed> batches) {
+        |    switch (commandName) {
+        |      case "StreamedInputMethod":
+        |        return action()
+        |                 .streamedInputMethodBatched(batches.map(batch ->
+        |                     batch.stream().map(el -> (ServiceOuterClass.MyRequest) el.payload()).collect(Collectors.toList())));
+        |      default:
+        |        throw new ActionHandler.HandlerNotFound(commandName);
+        |    }
+        |  }
+        |
+        |  @Override
+        |  public Source<Action.Effect<?>, NotUsed> handleStreamed(String commandName, Source<MessageEnvelope<Object>, NotUsed> stream) {
+        |    switch (commandName) {
+        |      case "FullStreamedMethod":
+        |        return action()
+        |                 .fullStreamedMethod(stream.map(el -> (ServiceOuterClass.MyRequest) el.payload()));
+        |      default:
+        |        throw new ActionHandler.HandlerNotFound(commandName);
+        |    }
+        |  }
+        |}
+        |""".stripMargin)
+  }
+
+  test("Action Handler source generation without streamed in commands") {
+    val simpleService = TestData.simpleActionService()
+    val service = simpleService.copy(commands = simpleService.commands.filterNot(_.fqn.name == "StreamedInputMethod"))
+
+    val generatedSrc =
+      ActionServiceSourceGenerator.actionHandler(service)
+    assertNoDiff(
+      generatedSrc,
+      """/* This code is managed by Akka Serverless tooling.
+        | * It will be re-generated to reflect any changes to your protobuf definitions.
+        | * DO NOT EDIT
+        | */
+        |
+        |package com.example.service;
+        |
+        |import akka.NotUsed;
+        |import akka.stream.javadsl.Source;
+        |import com.akkaserverless.javasdk.action.Action;
+        |import com.akkaserverless.javasdk.action.MessageEnvelope;
+        |import com.akkaserverless.javasdk.impl.action.ActionHandler;
+        |import com.external.Empty;
+        |
+        |public class MyServiceActionHandler extends ActionHandler<MyServiceAction> {
+        |
+        |  public MyServiceActionHandler(MyServiceAction actionBehavior) {
+        |    super(actionBehavior);
+        |  }
+        |
+        |  @Override
+        |  public Action.Effect<?> handleUnary(String commandName, MessageEnvelope<Object> message) {
+        |    switch (commandName) {
+        |      case "SimpleMethod":
+        |        return action()
+        |                 .simpleMethod((ServiceOuterClass.MyRequest) message.payload());
+        |      default:
+        |        throw new ActionHandler.HandlerNotFound(commandName);
+        |    }
+        |  }
+        |
+        |  @Override
+        |  public Source<Action.Effect<?>, NotUsed> handleStreamedOut(String commandName, MessageEnvelope<Object> message) {
+        |    switch (commandName) {
+        |      case "StreamedOutputMethod":
+        |        return action()
+        |                 .streamedOutputMethod((ServiceOuterClass.MyRequest) message.payload());
+        |      default:
+        |        throw new ActionHandler.HandlerNotFound(commandName);
+        |    }
+        |  }
+        |
+        |  @Override
+        |  public Action.Effect<?> handleStreamedIn(String commandName, Source<MessageEnvelope<Object>, NotUsed> stream) {
+        |    switch (commandName) {
+        |      
+        |      default:
+        |        throw new ActionHandler.HandlerNotFound(commandName);
+        |    }
+        |  }
+        |
+        |  @Override
         |  public Source<Action.Effect<?>, NotUsed> handleStreamed(String commandName, Source<MessageEnvelope<Object>, NotUsed> stream) {
         |    switch (commandName) {
         |      case "FullStreamedMethod":
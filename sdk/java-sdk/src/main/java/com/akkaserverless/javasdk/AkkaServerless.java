@@ -19,6 +19,7 @@ package com.akkaserverless.javasdk;
 import akka.Done;
 import akka.actor.ActorSystem;
 import com.akkaserverless.javasdk.eventsourcedentity.EventSourcedEntity;
+import com.akkaserverless.javasdk.action.ActionOptions;
 import com.akkaserverless.javasdk.action.ActionProvider;
 import com.akkaserverless.javasdk.eventsourcedentity.EventSourcedEntityOptions;
 import com.akkaserverless.javasdk.eventsourcedentity.EventSourcedEntityProvider;
@@ -120,13 +121,34 @@ public final class AkkaServerless {
         ActionFactory actionFactory,
         Descriptors.ServiceDescriptor descriptor,
         Descriptors.FileDescriptor... additionalDescriptors) {
+      return registerAction(
+          actionFactory, ActionOptions.defaults(), descriptor, additionalDescriptors);
+    }
+
+    /**
+     * Register an Action handler with the given options.
+     *
+     * <p>This is a low level API intended for custom mechanisms for implementing the action.
+     *
+     * @param actionOptions The options for this action.
+     * @param descriptor The descriptor for the service that this action implements.
+     * @param additionalDescriptors Any additional descriptors that should be used to look up
+     *     protobuf types when needed.
+     * @return This Akka Serverless builder.
+     */
+    public AkkaServerless registerAction(
+        ActionFactory actionFactory,
+        ActionOptions actionOptions,
+        Descriptors.ServiceDescriptor descriptor,
+        Descriptors.FileDescriptor... additionalDescriptors) {
 
       final AnySupport anySupport = newAnySupport(additionalDescriptors);
 
       ActionFactory resolvedActionFactory =
           new ResolvedActionFactory(actionFactory, anySupport.resolveServiceDescriptor(descriptor));
 
-      ActionService service = new ActionService(resolvedActionFactory, descriptor, anySupport);
+      ActionService service =
+          new ActionService(resolvedActionFactory, descriptor, anySupport, actionOptions);
 
       services.put(descriptor.getFullName(), system -> service);
 
@@ -351,8 +373,17 @@ public final class AkkaServerless {
    * @return This stateful service builder.
    */
   public AkkaServerless register(ActionProvider provider) {
+    return register(provider, ActionOptions.defaults());
+  }
+
+  /**
+   * Register an action using an {{@link ActionProvider}}, with the given options.
+   *
+   * @return This stateful service builder.
+   */
+  public AkkaServerless register(ActionProvider provider, ActionOptions options) {
     return lowLevel.registerAction(
-        provider::newHandler, provider.serviceDescriptor(), provider.additionalDescriptors());
+        provider::newHandler, options, provider.serviceDescriptor(), provider.additionalDescriptors());
   }
 
   /**
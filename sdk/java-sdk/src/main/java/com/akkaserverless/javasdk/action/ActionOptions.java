@@ -0,0 +1,120 @@
+/*
+ * Copyright 2021 Lightbend Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.akkaserverless.javasdk.action;
+
+import com.akkaserverless.javasdk.impl.action.ActionOptionsImpl;
+
+import java.time.Duration;
+
+/** Options used for configuring an action when it is registered. */
+public interface ActionOptions {
+
+  /** @return whether action instances are reused for unary calls */
+  boolean reuseInstances();
+
+  /**
+   * Reuse action instances for unary calls, instead of creating a new action for every call.
+   *
+   * <p>This is meant for stateless actions that are expensive to create. A call borrows an idle
+   * action instance from a pool of at most as many instances as there are processors, so an
+   * instance is never invoked for two calls at the same time, but it is invoked for many calls one
+   * after the other. An action with reused instances must not keep any state between calls, and
+   * must only access the action context while handling a call, not from asynchronous callbacks.
+   * Streamed calls always get a new action instance.
+   *
+   * @param reuseInstances whether action instances should be reused
+   * @return the action options
+   */
+  ActionOptions withReuseInstances(boolean reuseInstances);
+
+  /** @return how many effects of a streamed out or streamed call are resolved at the same time */
+  int streamedResponseParallelism();
+
+  /**
+   * Resolve up to the given number of effects of a streamed out or streamed call at the same time.
+   *
+   * <p>By default the effects are resolved one at a time, so one slow asynchronous effect holds up
+   * every later response in the stream. With a higher parallelism, the asynchronous effects of
+   * several responses can be in flight together, while the responses are still sent in order.
+   *
+   * @param parallelism the number of effects to resolve at the same time, at least 1
+   * @return the action options
+   */
+  ActionOptions withStreamedResponseParallelism(int parallelism);
+
+  /** @return whether the responses of streamed out or streamed calls may be sent out of order */
+  boolean unorderedStreamedResponses();
+
+  /**
+   * Send each response of a streamed out or streamed call as soon as its effect is resolved, rather
+   * than in the order of the effects. This only makes a difference together with a streamed
+   * response parallelism greater than 1.
+   *
+   * @param unordered whether responses may be sent out of order
+   * @return the action options
+   */
+  ActionOptions withUnorderedStreamedResponses(boolean unordered);
+
+  /** @return whether the handlers of the action may block */
+  boolean blocking();
+
+  /**
+   * Mark the action's handlers as blocking, for example because they call a JDBC or HTTP client
+   * that blocks the calling thread.
+   *
+   * <p>Unary calls of a blocking action are handled on the blocking action dispatcher, configured
+   * in {@code akkaserverless.system.blocking-action-dispatcher}, which runs every call on its own
+   * virtual thread on JDK 21 or later, and uses a bounded thread pool on older JDKs. All actions
+   * can be marked as blocking at once with {@code akkaserverless.action.blocking = on}.
+   *
+   * @param blocking whether the handlers of the action may block
+   * @return the action options
+   */
+  ActionOptions withBlocking(boolean blocking);
+
+  /** @return the maximum number of messages in a batch of a streamed in call */
+  int streamedInBatchSize();
+
+  /** @return how long a batch of a streamed in call is collected at most */
+  Duration streamedInBatchWindow();
+
+  /**
+   * Hand the messages of streamed in calls to the action in batches, for example to write them to
+   * an external store with bulk inserts.
+   *
+   * <p>A batch is complete when it contains the given number of messages, or when the window has
+   * passed since its first message, whichever happens first. Batches are only collected while the
+   * action is ready to take the next one, so a slow action still backpressures the stream. The
+   * batches are passed to the {@code Batched} variant of the streamed in handler, which by default
+   * hands the messages on to the regular handler one at a time. A batch size of 1 disables
+   * batching, which is the default.
+   *
+   * @param maxBatchSize the maximum number of messages in a batch, at least 1
+   * @param maxBatchWindow the maximum time to collect a batch for, greater than zero
+   * @return the action options
+   */
+  ActionOptions withStreamedInBatching(int maxBatchSize, Duration maxBatchWindow);
+
+  /**
+   * Create default action options.
+   *
+   * @return the action options
+   */
+  static ActionOptions defaults() {
+    return new ActionOptionsImpl(false, 1, false, false, 1, Duration.ofMillis(100));
+  }
+}
@@ -25,7 +25,6 @@ import com.google.protobuf.Descriptors;
  * entities defined in Protobuf, for example <code>CustomerActionProvider</code>.
  */
 public interface ActionProvider<A extends Action> {
-  // TODO: do we need/have ActionOptions?
   Descriptors.ServiceDescriptor serviceDescriptor();
 
   ActionHandler<A> newHandler(ActionCreationContext context);
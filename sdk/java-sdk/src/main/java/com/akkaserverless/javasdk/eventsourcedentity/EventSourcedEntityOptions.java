@@ -41,6 +41,22 @@ public interface EventSourcedEntityOptions extends EntityOptions {
 
   EventSourcedEntityOptions withPassivationStrategy(PassivationStrategy strategy);
 
+  /** @return the maximum number of decoded snapshots that are cached, or 0 if not cached */
+  int snapshotCacheSize();
+
+  /**
+   * Cache the decoded snapshots of recently activated entities, so that an entity that is
+   * reactivated from the same snapshot doesn't need to decode it again. This is useful for entities
+   * that are frequently passivated and reactivated. The cache is disabled by default.
+   *
+   * <p>The cached state is shared by every activation of an entity, so it is only cached when it is
+   * of an immutable type, such as a protobuf message. Other states are always decoded.
+   *
+   * @param snapshotCacheSize the maximum number of cached snapshots, or 0 to disable the cache
+   * @return the entity option
+   */
+  EventSourcedEntityOptions withSnapshotCacheSize(int snapshotCacheSize);
+
   /**
    * Create a default entity option for an event sourced entity.
    *
@@ -48,6 +64,6 @@ public interface EventSourcedEntityOptions extends EntityOptions {
    */
   static EventSourcedEntityOptions defaults() {
     return new EventSourcedEntityOptionsImpl(
-        0, PassivationStrategy.defaultTimeout(), Collections.emptySet());
+        0, PassivationStrategy.defaultTimeout(), Collections.emptySet(), 0);
   }
 }
@@ -43,6 +43,52 @@ public interface ReplicatedEntityOptions extends EntityOptions {
    */
   ReplicatedEntityOptions withWriteConsistency(WriteConsistency writeConsistency);
 
+  /**
+   * Get the maximum number of consecutive incoming deltas that are buffered and applied together.
+   *
+   * @return the maximum number of coalesced deltas
+   */
+  int maxCoalescedDeltas();
+
+  /**
+   * Set the maximum number of consecutive incoming deltas that are buffered and applied together.
+   *
+   * <p>Deltas replicated from other nodes are buffered until the next command arrives for the
+   * entity, or until this many deltas have been buffered, and then applied to the replicated data
+   * in one go. Consecutive counter deltas are merged into a single increment, and consecutive set
+   * deltas into a single set of additions and removals. This reduces the work done for entities
+   * that receive many deltas between commands. A delta that doesn't match the type of the
+   * replicated data still fails the entity as soon as it arrives. The default of 1 applies every
+   * delta as soon as it arrives.
+   *
+   * @param maxCoalescedDeltas the maximum number of coalesced deltas, at least 1
+   * @return new replicated entity options with the maximum number of coalesced deltas
+   */
+  ReplicatedEntityOptions withMaxCoalescedDeltas(int maxCoalescedDeltas);
+
+  /**
+   * Get the number of keys and values in the initial state of a replicated entity from which they
+   * are decoded in parallel.
+   *
+   * @return the parallel decoding threshold, or 0 if parallel decoding is disabled
+   */
+  int parallelDecodingThreshold();
+
+  /**
+   * Set the number of keys and values in the initial state of a replicated entity from which they
+   * are decoded in parallel.
+   *
+   * <p>Activating an entity with a large replicated map or set is dominated by decoding its keys
+   * and values. When enabled, the initial state is decoded using multiple cores on the common fork
+   * join pool, giving the same replicated data as decoding it sequentially. Parallel decoding is
+   * disabled by default.
+   *
+   * @param parallelDecodingThreshold the parallel decoding threshold, or 0 to disable parallel
+   *     decoding
+   * @return new replicated entity options with the parallel decoding threshold
+   */
+  ReplicatedEntityOptions withParallelDecodingThreshold(int parallelDecodingThreshold);
+
   /**
    * Create default Replicated Entity options.
    *
@@ -50,6 +96,6 @@ public interface ReplicatedEntityOptions extends EntityOptions {
    */
   static ReplicatedEntityOptions defaults() {
     return new ReplicatedEntityOptionsImpl(
-        PassivationStrategy.defaultTimeout(), Collections.emptySet(), WriteConsistency.LOCAL);
+        PassivationStrategy.defaultTimeout(), Collections.emptySet(), WriteConsistency.LOCAL, 1, 0);
   }
 }
@@ -50,13 +50,20 @@ import org.slf4j.LoggerFactory
 object AkkaServerlessRunner {
   object BindFailure extends Reason
 
-  final case class Configuration(userFunctionInterface: String, userFunctionPort: Int, snapshotEvery: Int) {
+  final case class Configuration(
+      userFunctionInterface: String,
+      userFunctionPort: Int,
+      snapshotEvery: Int,
+      stateSizeWarningThreshold: Long = 1024 * 1024,
+      blockingActions: Boolean = false) {
     validate()
     def this(config: Config) = {
       this(
         userFunctionInterface = config.getString("user-function-interface"),
         userFunctionPort = config.getInt("user-function-port"),
-        snapshotEvery = config.getInt("event-sourced-entity.snapshot-every"))
+        snapshotEvery = config.getInt("event-sourced-entity.snapshot-every"),
+        stateSizeWarningThreshold = config.getBytes("value-entity.state-size-warning-threshold"),
+        blockingActions = config.getBoolean("action.blocking"))
     }
 
     private def validate(): Unit = {
@@ -131,7 +138,7 @@ final class AkkaServerlessRunner private[this] (
 
         case (route, (serviceClass, actionServices: Map[String, ActionService] @unchecked))
             if serviceClass == classOf[ActionService] =>
-          val actionImpl = new ActionsImpl(system, actionServices, rootContext)
+          val actionImpl = new ActionsImpl(system, actionServices, rootContext, configuration)
           route.orElse(ActionsHandler.partial(actionImpl))
 
         case (route, (serviceClass, entityServices: Map[String, ValueEntityService] @unchecked))
@@ -26,6 +26,7 @@ import com.google.protobuf.{
   CodedInputStream,
   CodedOutputStream,
   Descriptors,
+  Message => JavaPbMessage,
   Parser,
   UnsafeByteOperations,
   WireFormat
@@ -122,6 +123,21 @@ object AnySupport {
     .asInstanceOf[Seq[(String, Primitive[Any])]]
     .toMap
 
+  /**
+   * Whether a decoded value is of a type that is known to be immutable, so that it can be shared or compared with a
+   * later value without it having been changed in the meantime. That is the case for protobuf messages and primitives,
+   * but not for values mapped from JSON.
+   */
+  def isImmutable(value: Any): Boolean =
+    value match {
+      case _: JavaPbMessage | _: GeneratedMessage => true
+      // ByteString instances are of its subclasses, so the primitive types are matched rather than looked up by class
+      case _: String | _: ByteString | _: java.lang.Integer | _: java.lang.Long | _: java.lang.Float |
+          _: java.lang.Double | _: java.lang.Boolean =>
+        true
+      case _ => false
+    }
+
   /**
    * INTERNAL API
    */
@@ -206,6 +222,24 @@ class AnySupport(
 
   private val reflectionCache = TrieMap.empty[String, Try[ResolvedType[Any]]]
 
+  /**
+   * Exact match from full type url to decoder, for all primitives and for all known types under the configured type url
+   * prefix. This covers everything the proxy sends in practice, so decoding is a single lookup, only JSON and type urls
+   * with an unexpected prefix go through the parsing in `decodeByParsingTypeUrl`.
+   */
+  private val typeUrlDecoders: Map[String, ByteString => Any] =
+    NameToPrimitives.map { case (name, primitive) =>
+      name -> ((bytes: ByteString) => bytesToPrimitive(primitive, bytes))
+    } ++ allTypes.values.map { descriptor =>
+      (typeUrlPrefix + "/" + descriptor.getFullName) -> new TypeDecoder(descriptor)
+    }
+
+  private final class TypeDecoder(descriptor: Descriptors.Descriptor) extends (ByteString => Any) {
+    // resolved on first use rather than up front, not every type in the descriptors has a class on the classpath
+    private lazy val resolvedType = resolveTypeDescriptor(descriptor)
+    override def apply(bytes: ByteString): Any = resolvedType.parseFrom(bytes)
+  }
+
   private def strippedFileName(fileName: String) =
     fileName.split(Array('/', '\\')).last.stripSuffix(".proto")
 
@@ -381,7 +415,18 @@ class AnySupport(
 
   def decode(any: JavaPbAny): Any = decode(ScalaPbAny.fromJavaProto(any))
 
-  def decode(any: ScalaPbAny): Any = {
+  /**
+   * Decode directly from the wire representation used by the protocol messages. Prefer this over the `JavaPbAny`
+   * overload in the component implementations, it parses straight from the payload bytes without first copying the
+   * `Any` into its Java counterpart.
+   */
+  def decode(any: ScalaPbAny): Any =
+    typeUrlDecoders.get(any.typeUrl) match {
+      case Some(decoder) => decoder(any.value)
+      case None          => decodeByParsingTypeUrl(any)
+    }
+
+  private def decodeByParsingTypeUrl(any: ScalaPbAny): Any = {
     val typeUrl = any.typeUrl
     val bytes = any.value
     if (typeUrl.startsWith(AkkaServerlessPrimitive)) {
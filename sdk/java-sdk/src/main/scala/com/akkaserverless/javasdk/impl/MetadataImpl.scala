@@ -17,6 +17,7 @@
 package com.akkaserverless.javasdk.impl
 
 import com.akkaserverless.javasdk.{ CloudEvent, Metadata }
+import com.akkaserverless.protocol.component
 import com.akkaserverless.protocol.component.MetadataEntry
 import com.google.protobuf.ByteString
 
@@ -25,37 +26,55 @@ import java.nio.ByteBuffer
 import java.time.ZonedDateTime
 import java.time.format.DateTimeFormatter
 import java.util
-import java.util.{ Objects, Optional }
+import java.util.{ Locale, Objects, Optional }
 import scala.jdk.CollectionConverters._
 import scala.collection.immutable
 import scala.compat.java8.OptionConverters._
 
-private[impl] class MetadataImpl(val entries: immutable.Seq[MetadataEntry]) extends Metadata with CloudEvent {
+private[impl] class MetadataImpl private (val entries: immutable.Seq[MetadataEntry], knownIndex: MetadataImpl.Index)
+    extends Metadata
+    with CloudEvent {
+  import MetadataImpl.{ indexKey, Index }
 
-  override def has(key: String): Boolean = entries.exists(_.key.equalsIgnoreCase(key))
+  def this(entries: immutable.Seq[MetadataEntry]) = this(entries, null)
+
+  // Lower cased key to the entries for that key, in order. Only built on the first lookup, and then carried over to
+  // the copies created by set/add/remove. Not synchronized, concurrent first lookups at worst build the same immutable
+  // index twice.
+  private var _index: Index = knownIndex
+
+  private def index: Index = {
+    if (_index eq null) {
+      _index = entries.foldLeft(Map.empty: Index) { (index, entry) =>
+        val key = indexKey(entry.key)
+        index.updated(key, index.getOrElse(key, Vector.empty) :+ entry)
+      }
+    }
+    _index
+  }
+
+  private def entriesFor(key: String): Vector[MetadataEntry] = index.getOrElse(indexKey(key), Vector.empty)
+
+  override def has(key: String): Boolean = index.contains(indexKey(key))
 
   override def get(key: String): Optional[String] =
-    entries.collectFirst {
-      case MetadataEntry(k, MetadataEntry.Value.StringValue(value), _) if key.equalsIgnoreCase(k) =>
-        value
+    entriesFor(key).collectFirst { case MetadataEntry(_, MetadataEntry.Value.StringValue(value), _) =>
+      value
     }.asJava
 
   override def getAll(key: String): util.List[String] =
-    entries.collect {
-      case MetadataEntry(k, MetadataEntry.Value.StringValue(value), _) if key.equalsIgnoreCase(k) =>
-        value
+    entriesFor(key).collect { case MetadataEntry(_, MetadataEntry.Value.StringValue(value), _) =>
+      value
     }.asJava
 
   override def getBinary(key: String): Optional[ByteBuffer] =
-    entries.collectFirst {
-      case MetadataEntry(k, MetadataEntry.Value.BytesValue(value), _) if key.equalsIgnoreCase(k) =>
-        value.asReadOnlyByteBuffer()
+    entriesFor(key).collectFirst { case MetadataEntry(_, MetadataEntry.Value.BytesValue(value), _) =>
+      value.asReadOnlyByteBuffer()
     }.asJava
 
   override def getBinaryAll(key: String): util.List[ByteBuffer] =
-    entries.collect {
-      case MetadataEntry(k, MetadataEntry.Value.BytesValue(value), _) if key.equalsIgnoreCase(k) =>
-        value.asReadOnlyByteBuffer()
+    entriesFor(key).collect { case MetadataEntry(_, MetadataEntry.Value.BytesValue(value), _) =>
+      value.asReadOnlyByteBuffer()
     }.asJava
 
   override def getAllKeys: util.List[String] = entries.map(_.key).asJava
@@ -63,28 +82,28 @@ private[impl] class MetadataImpl(val entries: immutable.Seq[MetadataEntry]) exte
   override def set(key: String, value: String): MetadataImpl = {
     Objects.requireNonNull(key, "Key must not be null")
     Objects.requireNonNull(value, "Value must not be null")
-    new MetadataImpl(removeKey(key) :+ MetadataEntry(key, MetadataEntry.Value.StringValue(value)))
+    removeKey(key).addEntry(MetadataEntry(key, MetadataEntry.Value.StringValue(value)))
   }
 
   override def setBinary(key: String, value: ByteBuffer): Metadata = {
     Objects.requireNonNull(key, "Key must not be null")
     Objects.requireNonNull(value, "Value must not be null")
-    new MetadataImpl(removeKey(key) :+ MetadataEntry(key, MetadataEntry.Value.BytesValue(ByteString.copyFrom(value))))
+    removeKey(key).addEntry(MetadataEntry(key, MetadataEntry.Value.BytesValue(ByteString.copyFrom(value))))
   }
 
   override def add(key: String, value: String): Metadata = {
     Objects.requireNonNull(key, "Key must not be null")
     Objects.requireNonNull(value, "Value must not be null")
-    new MetadataImpl(entries :+ MetadataEntry(key, MetadataEntry.Value.StringValue(value)))
+    addEntry(MetadataEntry(key, MetadataEntry.Value.StringValue(value)))
   }
 
   override def addBinary(key: String, value: ByteBuffer): Metadata = {
     Objects.requireNonNull(key, "Key must not be null")
     Objects.requireNonNull(value, "Value must not be null")
-    new MetadataImpl(entries :+ MetadataEntry(key, MetadataEntry.Value.BytesValue(ByteString.copyFrom(value))))
+    addEntry(MetadataEntry(key, MetadataEntry.Value.BytesValue(ByteString.copyFrom(value))))
   }
 
-  override def remove(key: String): MetadataImpl = new MetadataImpl(removeKey(key))
+  override def remove(key: String): MetadataImpl = removeKey(key)
 
   override def clear(): Metadata = MetadataImpl.Empty
 
@@ -99,29 +118,53 @@ private[impl] class MetadataImpl(val entries: immutable.Seq[MetadataEntry]) exte
       }
     }.asJava
 
-  private def removeKey(key: String) = entries.filterNot(_.key.equalsIgnoreCase(key))
+  // the copies share the entries and the index with this instance where possible, rather than rebuilding them
+  private def addEntry(entry: MetadataEntry): MetadataImpl = {
+    val newIndex =
+      if (_index eq null) null
+      else {
+        val key = indexKey(entry.key)
+        _index.updated(key, _index.getOrElse(key, Vector.empty) :+ entry)
+      }
+    new MetadataImpl(entries :+ entry, newIndex)
+  }
+
+  private def removeKey(key: String): MetadataImpl =
+    if (!has(key)) this
+    else new MetadataImpl(entries.filterNot(_.key.equalsIgnoreCase(key)), index - indexKey(key))
+
+  // Metadata is immutable, so the CloudEvent attributes are checked and parsed at most once per instance rather than
+  // on every access. Failures are not memoized, a lazy val that throws is evaluated again on the next access.
+  private lazy val hasCloudEventAttributes: Boolean = MetadataImpl.CeRequired.forall(h => has(h))
 
-  def isCloudEvent: Boolean = MetadataImpl.CeRequired.forall(h => has(h))
+  private lazy val ceSource: URI = URI.create(getRequiredCloudEventField(MetadataImpl.CeSource))
+  private lazy val ceDataschema: Optional[URI] = get(MetadataImpl.CeDataschema).map(URI.create(_))
+  private lazy val ceTime: Optional[ZonedDateTime] = get(MetadataImpl.CeTime).map(ZonedDateTime.parse(_))
+
+  def isCloudEvent: Boolean = hasCloudEventAttributes
 
   override def asCloudEvent(): CloudEvent =
     if (!isCloudEvent) {
       throw new IllegalStateException("Metadata is not a CloudEvent!")
     } else this
 
-  override def asCloudEvent(id: String, source: URI, `type`: String): CloudEvent =
+  override def asCloudEvent(id: String, source: URI, `type`: String): CloudEvent = {
+    // outgoing metadata usually has none of the required attributes yet, then the existing entries are kept as is
+    val retained =
+      if (MetadataImpl.CeRequired.exists(has)) entries.filterNot(e => MetadataImpl.CeRequired(indexKey(e.key)))
+      else entries
     new MetadataImpl(
-      entries.filterNot(e => MetadataImpl.CeRequired(e.key)) ++
-      Seq(
-        MetadataEntry(MetadataImpl.CeSpecversion, MetadataEntry.Value.StringValue(MetadataImpl.CeSpecversionValue)),
-        MetadataEntry(MetadataImpl.CeId, MetadataEntry.Value.StringValue(id)),
-        MetadataEntry(MetadataImpl.CeSource, MetadataEntry.Value.StringValue(source.toString)),
-        MetadataEntry(MetadataImpl.CeType, MetadataEntry.Value.StringValue(`type`))))
+      retained :+
+      MetadataEntry(MetadataImpl.CeSpecversion, MetadataEntry.Value.StringValue(MetadataImpl.CeSpecversionValue)) :+
+      MetadataEntry(MetadataImpl.CeId, MetadataEntry.Value.StringValue(id)) :+
+      MetadataEntry(MetadataImpl.CeSource, MetadataEntry.Value.StringValue(source.toString)) :+
+      MetadataEntry(MetadataImpl.CeType, MetadataEntry.Value.StringValue(`type`)))
+  }
 
   private def getRequiredCloudEventField(key: String) =
-    entries
-      .collectFirst {
-        case MetadataEntry(k, MetadataEntry.Value.StringValue(value), _) if key.equalsIgnoreCase(k) =>
-          value
+    entriesFor(key)
+      .collectFirst { case MetadataEntry(_, MetadataEntry.Value.StringValue(value), _) =>
+        value
       }
       .getOrElse {
         throw new IllegalStateException(s"Metadata is not a CloudEvent because it does not have required field $key")
@@ -133,7 +176,7 @@ private[impl] class MetadataImpl(val entries: immutable.Seq[MetadataEntry]) exte
 
   override def withId(id: String): CloudEvent = set(MetadataImpl.CeId, id)
 
-  override def source(): URI = URI.create(getRequiredCloudEventField(MetadataImpl.CeSource))
+  override def source(): URI = ceSource
 
   override def withSource(source: URI): CloudEvent = set(MetadataImpl.CeSource, source.toString)
 
@@ -148,7 +191,7 @@ private[impl] class MetadataImpl(val entries: immutable.Seq[MetadataEntry]) exte
 
   override def clearDatacontenttype(): CloudEvent = remove(MetadataImpl.CeDatacontenttype)
 
-  override def dataschema(): Optional[URI] = get(MetadataImpl.CeDataschema).map(URI.create(_))
+  override def dataschema(): Optional[URI] = ceDataschema
 
   override def withDataschema(dataschema: URI): CloudEvent = set(MetadataImpl.CeDataschema, dataschema.toString)
 
@@ -160,7 +203,7 @@ private[impl] class MetadataImpl(val entries: immutable.Seq[MetadataEntry]) exte
 
   override def clearSubject(): CloudEvent = remove(MetadataImpl.CeSubject)
 
-  override def time(): Optional[ZonedDateTime] = get(MetadataImpl.CeTime).map(ZonedDateTime.parse(_))
+  override def time(): Optional[ZonedDateTime] = ceTime
 
   override def withTime(time: ZonedDateTime): CloudEvent =
     set(MetadataImpl.CeTime, DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(time))
@@ -171,6 +214,10 @@ private[impl] class MetadataImpl(val entries: immutable.Seq[MetadataEntry]) exte
 }
 
 object MetadataImpl {
+  private[impl] type Index = Map[String, Vector[MetadataEntry]]
+
+  private def indexKey(key: String): String = key.toLowerCase(Locale.ROOT)
+
   val CeSpecversion = "ce-specversion"
   val CeSpecversionValue = "1.0"
   val CeId = "ce-id"
@@ -184,4 +231,14 @@ object MetadataImpl {
   val CeRequired: Set[String] = Set(CeSpecversion, CeId, CeSource, CeType)
 
   val Empty = new MetadataImpl(Vector.empty)
+
+  /**
+   * Metadata for the metadata of an incoming protocol message. The entries of the protocol message are shared rather
+   * than copied, they are only indexed on the first lookup and only copied when the metadata is modified.
+   */
+  def of(metadata: Option[component.Metadata]): MetadataImpl =
+    metadata match {
+      case Some(md) if md.entries.nonEmpty => new MetadataImpl(md.entries)
+      case _                               => Empty
+    }
 }
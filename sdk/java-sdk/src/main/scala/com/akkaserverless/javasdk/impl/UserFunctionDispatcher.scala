@@ -0,0 +1,106 @@
+/*
+ * Copyright 2021 Lightbend Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.akkaserverless.javasdk.impl
+
+import akka.actor.ActorSystem
+import akka.dispatch.DispatcherPrerequisites
+import akka.dispatch.ExecutorServiceConfigurator
+import akka.dispatch.ExecutorServiceFactory
+import akka.dispatch.ThreadPoolExecutorConfigurator
+import com.typesafe.config.Config
+import com.typesafe.config.ConfigFactory
+import org.slf4j.LoggerFactory
+
+import java.lang.reflect.InvocationTargetException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.ThreadFactory
+import scala.concurrent.ExecutionContext
+
+/**
+ * The dispatcher that user code of actions, entities and views runs on, kept apart from the default dispatcher that
+ * serves the gRPC connections so that user code blocking a thread can't stall them.
+ */
+private[javasdk] object UserFunctionDispatcher {
+  final val Id = "akkaserverless.system.user-function-dispatcher"
+
+  def executionContext(system: ActorSystem): ExecutionContext = system.dispatchers.lookup(Id)
+
+  /** Whether the dispatcher has been configured differently from the defaults in the SDK's reference.conf. */
+  def isCustomized(system: ActorSystem): Boolean =
+    system.settings.config.getConfig(Id) != ConfigFactory.defaultReference(getClass.getClassLoader).getConfig(Id)
+}
+
+/**
+ * The dispatcher that unary calls of actions with blocking handlers are handled on, see
+ * [[com.akkaserverless.javasdk.action.ActionOptions#withBlocking]].
+ */
+private[javasdk] object BlockingActionDispatcher {
+  final val Id = "akkaserverless.system.blocking-action-dispatcher"
+
+  def executionContext(system: ActorSystem): ExecutionContext = system.dispatchers.lookup(Id)
+}
+
+/**
+ * Runs each task on a new virtual thread when `virtual-threads` is enabled and the JDK supports them (JDK 21 or later),
+ * and otherwise uses the configured `thread-pool-executor`.
+ */
+final class UserFunctionExecutorConfigurator(config: Config, prerequisites: DispatcherPrerequisites)
+    extends ExecutorServiceConfigurator(config, prerequisites) {
+
+  private val threadPool = new ThreadPoolExecutorConfigurator(config.getConfig("thread-pool-executor"), prerequisites)
+
+  override def createExecutorServiceFactory(id: String, threadFactory: ThreadFactory): ExecutorServiceFactory = {
+    val virtualThreads = config.getBoolean("virtual-threads")
+    if (virtualThreads && VirtualThreads.supported)
+      new ExecutorServiceFactory {
+        override def createExecutorService: ExecutorService = VirtualThreads.newThreadPerTaskExecutor()
+      }
+    else {
+      if (virtualThreads)
+        LoggerFactory
+          .getLogger(getClass)
+          .warn("Virtual threads need JDK 21 or later, dispatcher [{}] uses a thread pool instead", id)
+      threadPool.createExecutorServiceFactory(id, threadFactory)
+    }
+  }
+}
+
+private[javasdk] object VirtualThreads {
+
+  // looked up reflectively, since the SDK is compiled for Java 8
+  private val newVirtualThreadPerTaskExecutor =
+    try Some(classOf[Executors].getMethod("newVirtualThreadPerTaskExecutor"))
+    catch { case _: NoSuchMethodException => None }
+
+  /** False on JDKs without virtual threads, and on JDK 19 and 20 unless preview features are enabled. */
+  lazy val supported: Boolean =
+    newVirtualThreadPerTaskExecutor.exists { _ =>
+      try {
+        newThreadPerTaskExecutor().shutdown()
+        true
+      } catch {
+        case _: UnsupportedOperationException => false
+      }
+    }
+
+  def newThreadPerTaskExecutor(): ExecutorService =
+    try newVirtualThreadPerTaskExecutor.get.invoke(null).asInstanceOf[ExecutorService]
+    catch {
+      case e: InvocationTargetException => throw e.getCause
+    }
+}
@@ -24,6 +24,7 @@ import com.akkaserverless.javasdk.action.MessageEnvelope
 import com.akkaserverless.javasdk.impl.action.ActionHandler.HandlerNotFound
 
 import java.util.Optional
+import scala.jdk.CollectionConverters._
 
 object ActionHandler {
   case class HandlerNotFound(val commandName: String) extends RuntimeException
@@ -125,6 +126,42 @@ abstract class ActionHandler[A <: Action](protected val action: A) {
    */
   def handleStreamedIn(commandName: String, stream: Source[MessageEnvelope[Any], NotUsed]): Action.Effect[_]
 
+  /**
+   * Handle a streamed in call of an action with streamed in batching enabled.
+   *
+   * @param commandName
+   *   The name of the command this call is for.
+   * @param batches
+   *   The stream of batches of messages to handle.
+   * @param context
+   *   The action context.
+   * @return
+   *   A future of the message to return.
+   */
+  final def handleStreamedInBatched(
+      commandName: String,
+      batches: Source[java.util.List[MessageEnvelope[Any]], NotUsed],
+      context: ActionContext): Action.Effect[_] =
+    callWithContext(context) { () =>
+      handleStreamedInBatched(commandName, batches)
+    }
+
+  /**
+   * Handle a streamed in call of an action with streamed in batching enabled. By default the messages of the batches
+   * are passed on to [[handleStreamedIn]] one by one.
+   *
+   * @param commandName
+   *   The name of the command this call is for.
+   * @param batches
+   *   The stream of batches of messages to handle.
+   * @return
+   *   A future of the message to return.
+   */
+  def handleStreamedInBatched(
+      commandName: String,
+      batches: Source[java.util.List[MessageEnvelope[Any]], NotUsed]): Action.Effect[_] =
+    handleStreamedIn(commandName, batches.asScala.mapConcat(_.asScala).asJava)
+
   /**
    * Handle a full duplex streamed in call.
    *
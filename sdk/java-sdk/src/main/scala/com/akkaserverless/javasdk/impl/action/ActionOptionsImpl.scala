@@ -0,0 +1,51 @@
+/*
+ * Copyright 2021 Lightbend Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.akkaserverless.javasdk.impl.action
+
+import com.akkaserverless.javasdk.action.ActionOptions
+
+import java.time.Duration
+
+private[impl] case class ActionOptionsImpl(
+    override val reuseInstances: Boolean,
+    override val streamedResponseParallelism: Int,
+    override val unorderedStreamedResponses: Boolean,
+    override val blocking: Boolean,
+    override val streamedInBatchSize: Int,
+    override val streamedInBatchWindow: Duration)
+    extends ActionOptions {
+
+  override def withReuseInstances(reuseInstances: Boolean): ActionOptions =
+    copy(reuseInstances = reuseInstances)
+
+  override def withStreamedResponseParallelism(parallelism: Int): ActionOptions = {
+    require(parallelism >= 1, "parallelism must be at least 1")
+    copy(streamedResponseParallelism = parallelism)
+  }
+
+  override def withUnorderedStreamedResponses(unordered: Boolean): ActionOptions =
+    copy(unorderedStreamedResponses = unordered)
+
+  override def withBlocking(blocking: Boolean): ActionOptions =
+    copy(blocking = blocking)
+
+  override def withStreamedInBatching(maxBatchSize: Int, maxBatchWindow: Duration): ActionOptions = {
+    require(maxBatchSize >= 1, "maxBatchSize must be at least 1")
+    require(!maxBatchWindow.isNegative && !maxBatchWindow.isZero, "maxBatchWindow must be greater than zero")
+    copy(streamedInBatchSize = maxBatchSize, streamedInBatchWindow = maxBatchWindow)
+  }
+}
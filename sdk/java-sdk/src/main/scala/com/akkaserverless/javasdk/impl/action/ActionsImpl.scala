@@ -18,9 +18,11 @@ package com.akkaserverless.javasdk.impl.action
 
 import akka.NotUsed
 import akka.actor.ActorSystem
+import akka.stream.scaladsl.Flow
 import akka.stream.scaladsl.Sink
 import akka.stream.scaladsl.Source
 import com.akkaserverless.javasdk._
+import com.akkaserverless.javasdk.AkkaServerlessRunner.Configuration
 import com.akkaserverless.javasdk.action._
 import com.akkaserverless.javasdk.impl.AnySupport
 import com.akkaserverless.javasdk.impl._
@@ -31,21 +33,27 @@ import com.akkaserverless.protocol.component
 import com.akkaserverless.protocol.component.Failure
 import com.google.protobuf.Descriptors
 import com.google.protobuf.any.{ Any => ScalaPbAny }
-import com.google.protobuf.{ Any => JavaPbAny }
 import java.util.Optional
 
 import scala.collection.immutable
+import scala.concurrent.ExecutionContext
 import scala.concurrent.Future
 import scala.jdk.CollectionConverters.SeqHasAsJava
+import scala.jdk.DurationConverters.JavaDurationOps
+import scala.util.Try
 
 import com.akkaserverless.javasdk.impl.ActionFactory
 
 final class ActionService(
     val factory: ActionFactory,
     override val descriptor: Descriptors.ServiceDescriptor,
-    val anySupport: AnySupport)
+    val anySupport: AnySupport,
+    val actionOptions: ActionOptions)
     extends Service {
 
+  def this(factory: ActionFactory, descriptor: Descriptors.ServiceDescriptor, anySupport: AnySupport) =
+    this(factory, descriptor, anySupport, ActionOptions.defaults())
+
   override def resolvedMethods: Option[Map[String, ResolvedServiceMethod[_, _]]] =
     factory match {
       case resolved: ResolvedEntityFactory => Some(resolved.resolvedMethods)
@@ -55,25 +63,60 @@ final class ActionService(
   override final val componentType = Actions.name
 }
 
-final class ActionsImpl(_system: ActorSystem, services: Map[String, ActionService], rootContext: Context)
+final class ActionsImpl(
+    _system: ActorSystem,
+    services: Map[String, ActionService],
+    rootContext: Context,
+    configuration: Configuration)
     extends Actions {
 
-  import _system.dispatcher
   implicit val system: ActorSystem = _system
+  private implicit val ec: ExecutionContext = UserFunctionDispatcher.executionContext(system)
+  private lazy val blockingContext: ExecutionContext = BlockingActionDispatcher.executionContext(system)
 
   private object creationContext extends ActionCreationContext {
     override def serviceCallFactory(): ServiceCallFactory = rootContext.serviceCallFactory()
   }
 
-  private def toJavaPbAny(any: Option[ScalaPbAny]) =
-    any.fold(JavaPbAny.getDefaultInstance)(ScalaPbAny.toJavaProto)
+  // actions that opted in to instance reuse borrow a handler from a bounded pool, so a handler is never used
+  // concurrently, and the pool doesn't depend on which (possibly virtual) thread handles the call
+  private val handlerPools: Map[String, HandlerPool[ActionHandler[_]]] = services.collect {
+    case (name, service) if service.actionOptions.reuseInstances =>
+      name -> new HandlerPool[ActionHandler[_]](() => service.factory.create(creationContext))
+  }
+
+  private def handleUnaryWith(in: ActionCommand, service: ActionService): Action.Effect[_] = {
+    val context = createContext(in, service.anySupport)
+    val decodedPayload = service.anySupport.decode(toScalaPbAny(in.payload))
+    val message = MessageEnvelope.of(decodedPayload, context.metadata())
+    handlerPools.get(in.serviceName) match {
+      case Some(pool) =>
+        val handler = pool.borrow()
+        try handler.handleUnary(in.name, message, context)
+        finally pool.release(handler)
+      case None =>
+        service.factory.create(creationContext).handleUnary(in.name, message, context)
+    }
+  }
+
+  // unary calls are cheap to handle inline, so they are only moved off the calling thread when the user function
+  // dispatcher has been tuned, for example to use virtual threads, or when the action blocks
+  private val unaryOnUserFunctionDispatcher = UserFunctionDispatcher.isCustomized(system)
+
+  private def unaryContext(service: ActionService): Option[ExecutionContext] =
+    if (configuration.blockingActions || service.actionOptions.blocking) Some(blockingContext)
+    else if (unaryOnUserFunctionDispatcher) Some(ec)
+    else None
+
+  private def toScalaPbAny(any: Option[ScalaPbAny]) =
+    any.getOrElse(ScalaPbAny.defaultInstance)
 
   private def effectToResponse(effect: Action.Effect[_], anySupport: AnySupport): Future[ActionResponse] = {
     import ActionEffectImpl._
     effect match {
       case ReplyEffect(message, metadata, sideEffects) =>
         val response =
-          component.Reply(Some(ScalaPbAny.fromJavaProto(anySupport.encodeJava(message))), metadata.flatMap(toProtocol))
+          component.Reply(Some(anySupport.encodeScala(message)), metadata.flatMap(toProtocol))
         Future.successful(ActionResponse(ActionResponse.Response.Reply(response), toProtocol(sideEffects)))
       case ForwardEffect(forward, sideEffects) =>
         val response = component.Forward(
@@ -83,9 +126,14 @@ final class ActionsImpl(_system: ActorSystem, services: Map[String, ActionServic
           toProtocol(forward.metadata()))
         Future.successful(ActionResponse(ActionResponse.Response.Forward(response), toProtocol(sideEffects)))
       case AsyncEffect(futureEffect, sideEffects) =>
-        futureEffect.flatMap { effect =>
-          val withSurroundingSideEffects = effect.addSideEffects(sideEffects.asJava)
-          effectToResponse(withSurroundingSideEffects, anySupport)
+        def withSurroundingSideEffects(effect: Action.Effect[_]): Future[ActionResponse] =
+          effectToResponse(effect.addSideEffects(sideEffects.asJava), anySupport)
+        futureEffect.value match {
+          // typically a CompletionStage that had already completed when it was returned
+          case Some(scala.util.Success(effect)) => withSurroundingSideEffects(effect)
+          case Some(scala.util.Failure(error))  => Future.failed(error)
+          // turning the effect into a response is cheap, so it doesn't need to be scheduled on the dispatcher
+          case None => futureEffect.flatMap(withSurroundingSideEffects)(ExecutionContext.parasitic)
         }
       case ErrorEffect(description, sideEffects) =>
         Future.successful(
@@ -97,6 +145,14 @@ final class ActionsImpl(_system: ActorSystem, services: Map[String, ActionServic
     }
   }
 
+  private def effectsToResponses(service: ActionService): Flow[Action.Effect[_], ActionResponse, NotUsed] = {
+    val parallelism = service.actionOptions.streamedResponseParallelism
+    if (service.actionOptions.unorderedStreamedResponses)
+      Flow[Action.Effect[_]].mapAsyncUnordered(parallelism)(effect => effectToResponse(effect, service.anySupport))
+    else
+      Flow[Action.Effect[_]].mapAsync(parallelism)(effect => effectToResponse(effect, service.anySupport))
+  }
+
   private def toProtocol(sideEffects: immutable.Seq[SideEffect]): Seq[component.SideEffect] =
     sideEffects.map { sideEffect =>
       component.SideEffect(
@@ -124,12 +180,11 @@ final class ActionsImpl(_system: ActorSystem, services: Map[String, ActionServic
   override def handleUnary(in: ActionCommand): Future[ActionResponse] =
     services.get(in.serviceName) match {
       case Some(service) =>
-        val context = createContext(in, service.anySupport)
-        val decodedPayload = service.anySupport.decode(toJavaPbAny(in.payload))
-        val effect = service.factory
-          .create(creationContext)
-          .handleUnary(in.name, MessageEnvelope.of(decodedPayload, context.metadata()), context)
-        effectToResponse(effect, service.anySupport)
+        val effect = unaryContext(service) match {
+          case Some(executionContext) => Future(handleUnaryWith(in, service))(executionContext)
+          case None                   => Future.fromTry(Try(handleUnaryWith(in, service)))
+        }
+        effect.flatMap(effectToResponse(_, service.anySupport))(ExecutionContext.parasitic)
       case None =>
         Future.successful(
           ActionResponse(ActionResponse.Response.Failure(Failure(0, "Unknown service: " + in.serviceName))))
@@ -156,16 +211,22 @@ final class ActionsImpl(_system: ActorSystem, services: Map[String, ActionServic
         case (Seq(call), messages) =>
           services.get(call.serviceName) match {
             case Some(service) =>
-              val effect = service.factory
-                .create(creationContext)
-                .handleStreamedIn(
-                  call.name,
-                  messages.map { message =>
-                    val metadata = new MetadataImpl(message.metadata.map(_.entries.toVector).getOrElse(Nil))
-                    val decodedPayload = service.anySupport.decode(toJavaPbAny(message.payload))
-                    MessageEnvelope.of(decodedPayload, metadata)
-                  }.asJava,
-                  createContext(call, service.anySupport))
+              val handler = service.factory.create(creationContext)
+              val context = createContext(call, service.anySupport)
+              val envelopes = messages.map { message =>
+                val metadata = MetadataImpl.of(message.metadata)
+                val decodedPayload = service.anySupport.decode(toScalaPbAny(message.payload))
+                MessageEnvelope.of(decodedPayload, metadata)
+              }
+              val options = service.actionOptions
+              val effect =
+                if (options.streamedInBatchSize > 1) {
+                  val batches = envelopes
+                    .groupedWithin(options.streamedInBatchSize, options.streamedInBatchWindow.toScala)
+                    .map(_.asJava)
+                  handler.handleStreamedInBatched(call.name, batches.asJava, context)
+                } else
+                  handler.handleStreamedIn(call.name, envelopes.asJava, context)
               effectToResponse(effect, service.anySupport)
             case None =>
               Future.successful(
@@ -183,13 +244,19 @@ final class ActionsImpl(_system: ActorSystem, services: Map[String, ActionServic
   override def handleStreamedOut(in: ActionCommand): Source[ActionResponse, NotUsed] =
     services.get(in.serviceName) match {
       case Some(service) =>
-        val context = createContext(in, service.anySupport)
-        val decodedPayload = service.anySupport.decode(toJavaPbAny(in.payload))
-        service.factory
-          .create(creationContext)
-          .handleStreamedOut(in.name, MessageEnvelope.of(decodedPayload, context.metadata()), context)
-          .asScala
-          .mapAsync(1)(effect => effectToResponse(effect, service.anySupport))
+        // created lazily, so that the handler is invoked on the user function dispatcher
+        Source
+          .lazySource { () =>
+            val context = createContext(in, service.anySupport)
+            val decodedPayload = service.anySupport.decode(toScalaPbAny(in.payload))
+            service.factory
+              .create(creationContext)
+              .handleStreamedOut(in.name, MessageEnvelope.of(decodedPayload, context.metadata()), context)
+              .asScala
+          }
+          .via(effectsToResponses(service))
+          .mapMaterializedValue(_ => NotUsed)
+          .async(UserFunctionDispatcher.Id)
       case None =>
         Source.single(ActionResponse(ActionResponse.Response.Failure(Failure(0, "Unknown service: " + in.serviceName))))
     }
@@ -221,21 +288,22 @@ final class ActionsImpl(_system: ActorSystem, services: Map[String, ActionServic
                 .handleStreamed(
                   call.name,
                   messages.map { message =>
-                    val metadata = new MetadataImpl(message.metadata.map(_.entries.toVector).getOrElse(Nil))
-                    val decodedPayload = service.anySupport.decode(toJavaPbAny(message.payload))
+                    val metadata = MetadataImpl.of(message.metadata)
+                    val decodedPayload = service.anySupport.decode(toScalaPbAny(message.payload))
                     MessageEnvelope.of(decodedPayload, metadata)
                   }.asJava,
                   createContext(call, service.anySupport))
                 .asScala
-                .mapAsync(1)(effect => effectToResponse(effect, service.anySupport))
+                .via(effectsToResponses(service))
             case None =>
               Source.single(
                 ActionResponse(ActionResponse.Response.Failure(Failure(0, "Unknown service: " + call.serviceName))))
           }
       }
+      .async(UserFunctionDispatcher.Id)
 
   private def createContext(in: ActionCommand, anySupport: AnySupport): ActionContext = {
-    val metadata = new MetadataImpl(in.metadata.map(_.entries.toVector).getOrElse(Nil))
+    val metadata = MetadataImpl.of(in.metadata)
     new ActionContextImpl(metadata, anySupport)
   }
 
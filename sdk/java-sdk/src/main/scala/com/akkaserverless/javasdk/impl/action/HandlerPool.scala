@@ -0,0 +1,48 @@
+/*
+ * Copyright 2021 Lightbend Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.akkaserverless.javasdk.impl.action
+
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * The idle handlers of an action that reuses its instances, see
+ * [[com.akkaserverless.javasdk.action.ActionOptions#withReuseInstances]]. A handler is borrowed for the duration of a
+ * single call, so it is never used concurrently. At most `maxIdle` handlers are kept, further handlers that are
+ * released while the pool is full are dropped.
+ */
+private[action] final class HandlerPool[H <: AnyRef](
+    create: () => H,
+    maxIdle: Int = Runtime.getRuntime.availableProcessors()) {
+
+  private val idle = new ConcurrentLinkedQueue[H]()
+  // tracked separately, since the size of a ConcurrentLinkedQueue is computed by traversing it
+  private val idleCount = new AtomicInteger()
+
+  def borrow(): H = {
+    val handler = idle.poll()
+    if (handler eq null) create()
+    else {
+      idleCount.decrementAndGet()
+      handler
+    }
+  }
+
+  def release(handler: H): Unit =
+    if (idleCount.incrementAndGet() <= maxIdle) idle.offer(handler)
+    else idleCount.decrementAndGet()
+}
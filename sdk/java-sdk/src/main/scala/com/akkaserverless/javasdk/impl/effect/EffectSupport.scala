@@ -17,10 +17,10 @@
 package com.akkaserverless.javasdk.impl.effect
 
 import com.akkaserverless.javasdk
+import com.akkaserverless.javasdk.impl.AnySupport
 import com.akkaserverless.javasdk.impl.MetadataImpl
 import com.akkaserverless.protocol.component
 import com.google.protobuf.any.{ Any => ScalaPbAny }
-import com.google.protobuf.{ Any => JavaPbAny }
 
 object EffectSupport {
   private def asProtocol(metadata: javasdk.Metadata): Option[component.Metadata] =
@@ -32,8 +32,12 @@ object EffectSupport {
         throw new RuntimeException(s"Unknown metadata implementation: ${other.getClass}, cannot send")
     }
 
-  def asProtocol(messageReply: MessageReplyImpl[JavaPbAny]): component.Reply =
-    component.Reply(Some(ScalaPbAny.fromJavaProto(messageReply.message)), asProtocol(messageReply.metadata))
+  def asProtocol(messageReply: MessageReplyImpl[ScalaPbAny]): component.Reply =
+    component.Reply(Some(messageReply.message), asProtocol(messageReply.metadata))
+
+  /** The protocol reply for a message reply that hasn't been encoded yet. */
+  def asProtocol(messageReply: MessageReplyImpl[_], anySupport: AnySupport): component.Reply =
+    component.Reply(Some(anySupport.encodeScala(messageReply.message)), asProtocol(messageReply.metadata))
 
   def asProtocol(forward: ForwardReplyImpl[_]): component.Forward =
     component.Forward(
@@ -42,7 +46,12 @@ object EffectSupport {
       Some(ScalaPbAny.fromJavaProto(forward.serviceCall.message())),
       asProtocol(forward.serviceCall.metadata()))
 
-  def sideEffectsFrom(secondaryEffect: SecondaryEffectImpl): Vector[component.SideEffect] = {
+  def sideEffectsFrom(secondaryEffect: SecondaryEffectImpl): Vector[component.SideEffect] =
+    // most replies have no side effects, which then don't need a mapping function
+    if (secondaryEffect.sideEffects.isEmpty) Vector.empty
+    else encodeSideEffects(secondaryEffect)
+
+  private def encodeSideEffects(secondaryEffect: SecondaryEffectImpl): Vector[component.SideEffect] = {
     val encodedSideEffects = secondaryEffect.sideEffects.map { sideEffect =>
       component.SideEffect(
         sideEffect.serviceCall().ref().method().getService.getFullName,
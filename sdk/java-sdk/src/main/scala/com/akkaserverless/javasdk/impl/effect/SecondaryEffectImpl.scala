@@ -21,7 +21,7 @@ import com.akkaserverless.javasdk.ServiceCall
 import com.akkaserverless.javasdk.SideEffect
 import com.akkaserverless.javasdk.impl.effect
 import com.akkaserverless.protocol.component.ClientAction
-import com.google.protobuf.{ Any => JavaPbAny }
+import com.google.protobuf.any.{ Any => ScalaPbAny }
 
 sealed trait SecondaryEffectImpl {
   def sideEffects: Vector[SideEffect]
@@ -32,11 +32,11 @@ sealed trait SecondaryEffectImpl {
       allowNoReply: Boolean,
       restartOnFailure: Boolean): Option[ClientAction] = {
     this match {
-      case message: effect.MessageReplyImpl[JavaPbAny] @unchecked =>
+      case message: effect.MessageReplyImpl[ScalaPbAny] @unchecked =>
         Some(ClientAction(ClientAction.Action.Reply(EffectSupport.asProtocol(message))))
-      case forward: effect.ForwardReplyImpl[JavaPbAny] @unchecked =>
+      case forward: effect.ForwardReplyImpl[_] =>
         Some(ClientAction(ClientAction.Action.Forward(EffectSupport.asProtocol(forward))))
-      case failure: effect.ErrorReplyImpl[JavaPbAny] @unchecked =>
+      case failure: effect.ErrorReplyImpl[_] =>
         Some(
           ClientAction(ClientAction.Action
             .Failure(com.akkaserverless.protocol.component.Failure(commandId, failure.description, restartOnFailure))))
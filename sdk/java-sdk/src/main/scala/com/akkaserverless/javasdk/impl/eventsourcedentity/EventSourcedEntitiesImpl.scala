@@ -41,9 +41,8 @@ import com.akkaserverless.protocol.event_sourced_entity.EventSourcedStreamIn.Mes
 import com.akkaserverless.protocol.event_sourced_entity.EventSourcedStreamOut.Message.{ Reply => OutReply }
 import com.akkaserverless.protocol.event_sourced_entity.EventSourcedStreamOut.Message.{ Failure => OutFailure }
 import com.akkaserverless.protocol.event_sourced_entity._
-import com.google.protobuf.any.{ Any => ScalaPbAny }
+import com.akkaserverless.protocol.entity.Command
 import com.google.protobuf.Descriptors
-import com.google.protobuf.{ Any => JavaPbAny }
 import scala.util.control.NonFatal
 
 import com.akkaserverless.javasdk.impl.EventSourcedEntityFactory
@@ -104,6 +103,10 @@ final class EventSourcedEntitiesImpl(
     // FIXME overlay configuration provided by _system
     (name, if (service.snapshotEvery == 0) service.withSnapshotEvery(configuration.snapshotEvery) else service)
   }.toMap
+  private final val snapshotCaches = services.collect {
+    case (name, service) if service.entityOptions.exists(_.snapshotCacheSize > 0) =>
+      name -> new SnapshotCache(service.entityOptions.get.snapshotCacheSize)
+  }
 
   /**
    * The stream. One stream will be established per active entity. Once established, the first message sent will be
@@ -133,6 +136,7 @@ final class EventSourcedEntitiesImpl(
         log.error(error, failureMessage(error))
         EventSourcedStreamOut(OutFailure(failure(error)))
       }
+      .async(UserFunctionDispatcher.Id)
 
   private def runEntity(init: EventSourcedInit): Flow[EventSourcedStreamIn, EventSourcedStreamOut, NotUsed] = {
     val service =
@@ -147,99 +151,105 @@ final class EventSourcedEntitiesImpl(
       any <- snapshot.snapshot
     } yield {
       val snapshotSequence = snapshot.snapshotSequence
-      handler._internalHandleSnapshot(service.anySupport.decode(ScalaPbAny.toJavaProto(any)))
+      val state = snapshotCaches.get(init.serviceName) match {
+        case Some(cache) => cache.getOrDecode(init.entityId, snapshotSequence, any)(service.anySupport.decode)
+        case None        => service.anySupport.decode(any)
+      }
+      handler._internalHandleSnapshot(state)
       snapshotSequence
     }).getOrElse(0L)
 
-    Flow[EventSourcedStreamIn]
-      .map(_.message)
-      .scan[(Long, Option[EventSourcedStreamOut.Message])]((startingSequenceNumber, None)) {
-        case (_, InEvent(event)) =>
-          // Note that these only come on replay
-          val context = new EventContextImpl(thisEntityId, event.sequence)
-          val ev =
-            service.anySupport.decode(ScalaPbAny.toJavaProto(event.payload.get)).asInstanceOf[AnyRef] // FIXME empty?
-          handler._internalHandleEvent(ev, context)
-          (event.sequence, None)
-        case ((sequence, _), InCommand(command)) =>
-          if (thisEntityId != command.entityId)
-            throw ProtocolException(command, "Receiving entity is not the intended recipient of command")
+    def handleCommand(command: Command, sequence: Long): (Long, EventSourcedStreamOut.Message) = {
+      if (thisEntityId != command.entityId)
+        throw ProtocolException(command, "Receiving entity is not the intended recipient of command")
 
-          val cmd =
-            service.anySupport.decode(
-              ScalaPbAny.toJavaProto(command.payload.getOrElse(throw ProtocolException(command, "No command payload"))))
-          val metadata = new MetadataImpl(command.metadata.map(_.entries.toVector).getOrElse(Nil))
-          val context =
-            new CommandContextImpl(thisEntityId, sequence, command.name, command.id, metadata)
+      val cmd =
+        service.anySupport.decode(command.payload.getOrElse(throw ProtocolException(command, "No command payload")))
+      val metadata = MetadataImpl.of(command.metadata)
+      val context =
+        new CommandContextImpl(thisEntityId, sequence, command.name, command.id, metadata)
 
-          // FIXME we'd want to somehow share this handle-command-apply-event logic to get the end effect ready for asserting in the testkit
-          // FIXME a bit mixed concerns here, esp with the serialization to PbAny but it's either that or pushing this into the handler and making
-          // SecondaryEffectImpl a public API (or make handler internal, which may be a good idea, also for the testkit)
-          val CommandResult(
-            events: Vector[Any],
-            secondaryEffect: SecondaryEffectImpl,
-            snapshot: Option[Any],
-            endSequenceNumber) =
-            try {
-              handler._internalHandleCommand(
-                command.name,
-                cmd,
-                context,
-                service.snapshotEvery,
-                seqNr => new EventContextImpl(thisEntityId, seqNr))
-            } catch {
-              case e: EntityException => throw e
-              case NonFatal(error) =>
-                throw EntityException(command, s"Unexpected failure: $error", Some(error))
-            } finally {
-              context.deactivate() // Very important!
-            }
+      // FIXME we'd want to somehow share this handle-command-apply-event logic to get the end effect ready for asserting in the testkit
+      // FIXME a bit mixed concerns here, esp with the serialization to PbAny but it's either that or pushing this into the handler and making
+      // SecondaryEffectImpl a public API (or make handler internal, which may be a good idea, also for the testkit)
+      val CommandResult(
+        events: Vector[Any],
+        secondaryEffect: SecondaryEffectImpl,
+        snapshot: Option[Any],
+        endSequenceNumber) =
+        try {
+          handler._internalHandleCommand(
+            command.name,
+            cmd,
+            context,
+            service.snapshotEvery,
+            seqNr => new EventContextImpl(thisEntityId, seqNr))
+        } catch {
+          case e: EntityException => throw e
+          case NonFatal(error) =>
+            throw EntityException(command, s"Unexpected failure: $error", Some(error))
+        } finally {
+          context.deactivate() // Very important!
+        }
 
-          val serializedSecondaryEffect = secondaryEffect match {
-            case MessageReplyImpl(message, metadata, sideEffects) =>
-              MessageReplyImpl(service.anySupport.encodeJava(message), metadata, sideEffects)
-            case other => other
-          }
+      val serializedSecondaryEffect = secondaryEffect match {
+        case MessageReplyImpl(message, metadata, sideEffects) =>
+          MessageReplyImpl(service.anySupport.encodeScala(message), metadata, sideEffects)
+        case other => other
+      }
 
-          val clientAction =
-            serializedSecondaryEffect.replyToClientAction(
-              command.id,
-              allowNoReply = false,
-              restartOnFailure = events.nonEmpty)
+      val clientAction =
+        serializedSecondaryEffect.replyToClientAction(
+          command.id,
+          allowNoReply = false,
+          restartOnFailure = events.nonEmpty)
 
-          serializedSecondaryEffect match {
-            case error: ErrorReplyImpl[_] =>
-              log.error(
-                "Fail invoked for command [{}] for entity [{}]: {}",
-                command.name,
-                thisEntityId,
-                error.description)
-              (
-                endSequenceNumber,
-                Some(OutReply(EventSourcedReply(commandId = command.id, clientAction = clientAction))))
+      serializedSecondaryEffect match {
+        case error: ErrorReplyImpl[_] =>
+          log.error(
+            "Fail invoked for command [{}] for entity [{}]: {}",
+            command.name,
+            thisEntityId,
+            error.description)
+          (endSequenceNumber, OutReply(EventSourcedReply(commandId = command.id, clientAction = clientAction)))
 
-            case _ => // non-error
-              val serializedEvents = events.map(event => ScalaPbAny.fromJavaProto(service.anySupport.encodeJava(event)))
-              val serializedSnapshot =
-                snapshot.map(state => ScalaPbAny.fromJavaProto(service.anySupport.encodeJava(state)))
-              (
-                endSequenceNumber,
-                Some(
-                  OutReply(
-                    EventSourcedReply(
-                      command.id,
-                      clientAction,
-                      EffectSupport.sideEffectsFrom(serializedSecondaryEffect),
-                      serializedEvents,
-                      serializedSnapshot))))
-          }
-        case (_, InInit(_)) =>
-          throw ProtocolException(init, "Entity already inited")
-        case (_, InEmpty) =>
-          throw ProtocolException(init, "Received empty/unknown message")
+        case _ => // non-error
+          val serializedEvents = events.map(event => service.anySupport.encodeScala(event))
+          val serializedSnapshot = snapshot.map(state => service.anySupport.encodeScala(state))
+          (
+            endSequenceNumber,
+            OutReply(
+              EventSourcedReply(
+                command.id,
+                clientAction,
+                EffectSupport.sideEffectsFrom(serializedSecondaryEffect),
+                serializedEvents,
+                serializedSnapshot)))
       }
-      .collect { case (_, Some(message)) =>
-        EventSourcedStreamOut(message)
+    }
+
+    Flow[EventSourcedStreamIn]
+      .map(_.message)
+      .statefulMapConcat[EventSourcedStreamOut] { () =>
+        var sequence = startingSequenceNumber
+
+        {
+          case InEvent(event) =>
+            // Note that these only come on replay
+            val ev = service.anySupport.decode(event.payload.get).asInstanceOf[AnyRef] // FIXME empty?
+            // an event context per event, since user code may hold on to the context it was given
+            handler._internalHandleEvent(ev, new EventContextImpl(thisEntityId, event.sequence))
+            sequence = event.sequence
+            Nil
+          case InCommand(command) =>
+            val (endSequenceNumber, reply) = handleCommand(command, sequence)
+            sequence = endSequenceNumber
+            EventSourcedStreamOut(reply) :: Nil
+          case InInit(_) =>
+            throw ProtocolException(init, "Entity already inited")
+          case InEmpty =>
+            throw ProtocolException(init, "Received empty/unknown message")
+        }
       }
   }
 
@@ -26,7 +26,8 @@ import java.util.Collections
 private[impl] final case class EventSourcedEntityOptionsImpl(
     override val snapshotEvery: Int,
     override val passivationStrategy: PassivationStrategy,
-    override val forwardHeaders: java.util.Set[String])
+    override val forwardHeaders: java.util.Set[String],
+    override val snapshotCacheSize: Int)
     extends EventSourcedEntityOptions {
 
   override def withSnapshotEvery(numberOfEvents: Int): EventSourcedEntityOptions =
@@ -35,6 +36,11 @@ private[impl] final case class EventSourcedEntityOptionsImpl(
   override def withPassivationStrategy(strategy: PassivationStrategy): EventSourcedEntityOptions =
     copy(passivationStrategy = strategy)
 
+  override def withSnapshotCacheSize(snapshotCacheSize: Int): EventSourcedEntityOptions = {
+    require(snapshotCacheSize >= 0, "snapshotCacheSize must not be negative")
+    copy(snapshotCacheSize = snapshotCacheSize)
+  }
+
   override def withForwardHeaders(headers: util.Set[String]): EntityOptions =
     copy(forwardHeaders = Collections.unmodifiableSet(new util.HashSet(headers)));
 
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2021 Lightbend Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.akkaserverless.javasdk.impl.eventsourcedentity
+
+import com.akkaserverless.javasdk.impl.AnySupport
+import com.google.protobuf.any.{ Any => ScalaPbAny }
+
+import java.util
+
+/**
+ * Bounded cache of decoded snapshots for the entities of one entity type, so that an entity that is reactivated from
+ * the same snapshot doesn't need to decode it again. The least recently used snapshots are evicted first.
+ *
+ * The same decoded state is handed to every activation of the entity, so only states of known immutable types are
+ * cached, other states are decoded every time.
+ */
+private[impl] final class SnapshotCache(maxEntries: Int) {
+  import SnapshotCache._
+
+  private val cache = new util.LinkedHashMap[Key, Any](16, 0.75f, true) {
+    override def removeEldestEntry(eldest: util.Map.Entry[Key, Any]): Boolean = size() > maxEntries
+  }
+
+  def getOrDecode(entityId: String, snapshotSequence: Long, snapshot: ScalaPbAny)(decode: ScalaPbAny => Any): Any = {
+    val key = Key(entityId, snapshotSequence)
+    val cached = cache.synchronized(cache.get(key))
+    if (cached != null) cached
+    else {
+      val state = decode(snapshot)
+      if (AnySupport.isImmutable(state)) cache.synchronized(cache.put(key, state))
+      state
+    }
+  }
+}
+
+private[impl] object SnapshotCache {
+  private final case class Key(entityId: String, snapshotSequence: Long)
+}
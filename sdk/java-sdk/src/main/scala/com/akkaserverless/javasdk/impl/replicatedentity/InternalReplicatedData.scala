@@ -17,7 +17,11 @@
 package com.akkaserverless.javasdk.impl.replicatedentity
 
 import com.akkaserverless.javasdk.replicatedentity.ReplicatedData
+import com.akkaserverless.protocol.replicated_entity.ReplicatedCounterDelta
 import com.akkaserverless.protocol.replicated_entity.ReplicatedEntityDelta
+import com.akkaserverless.protocol.replicated_entity.ReplicatedSetDelta
+
+import scala.collection.mutable
 
 private[replicatedentity] trait InternalReplicatedData extends ReplicatedData {
   type Self <: InternalReplicatedData
@@ -27,3 +31,67 @@ private[replicatedentity] trait InternalReplicatedData extends ReplicatedData {
   def resetDelta(): Self
   def applyDelta: PartialFunction[ReplicatedEntityDelta.Delta, Self]
 }
+
+private[replicatedentity] object InternalReplicatedData {
+
+  private final val MinBulkDeltaSize = 16
+
+  /**
+   * Whether a delta of the given size should be applied through a builder, rather than by creating a new immutable
+   * collection for each of its entries. Copying the current entries into a builder only pays off when the delta is
+   * large relative to them, which is always the case for the initial delta of an entity.
+   */
+  def isBulkDelta(deltaSize: Int, currentSize: Int): Boolean =
+    deltaSize >= MinBulkDeltaSize && deltaSize >= currentSize / 4
+
+  /**
+   * Apply the entry deltas of a replicated map to its current entries. The update function is given each entry delta
+   * along with a lookup for the current value of a key, which includes earlier entries of the same delta, and returns
+   * the updated entry, if any.
+   */
+  def updateEntries[D, K, V](entries: Map[K, V], deltas: Seq[D])(
+      update: (D, K => Option[V]) => Option[(K, V)]): Map[K, V] =
+    if (isBulkDelta(deltas.size, entries.size)) {
+      val changed = mutable.HashMap.empty[K, V]
+      val current: K => Option[V] = key => changed.get(key).orElse(entries.get(key))
+      deltas.foreach(delta => update(delta, current).foreach(changed += _))
+      val builder = Map.newBuilder[K, V]
+      builder ++= entries
+      builder ++= changed
+      builder.result()
+    } else {
+      deltas.foldLeft(entries) { (map, delta) =>
+        update(delta, map.get) match {
+          case Some(entry) => map + entry
+          case None        => map
+        }
+      }
+    }
+
+  /**
+   * Merge two consecutive deltas into a single delta with the same effect as applying them one after the other, if they
+   * are of a type that can be merged. Counter increments are summed, set removals are unioned, and set additions are
+   * unioned without the elements that the later delta removes again.
+   */
+  def mergeDeltas(
+      earlier: ReplicatedEntityDelta.Delta,
+      later: ReplicatedEntityDelta.Delta): Option[ReplicatedEntityDelta.Delta] =
+    (earlier, later) match {
+      case (
+            ReplicatedEntityDelta.Delta.Counter(ReplicatedCounterDelta(first, _)),
+            ReplicatedEntityDelta.Delta.Counter(ReplicatedCounterDelta(second, _))) =>
+        Some(ReplicatedEntityDelta.Delta.Counter(ReplicatedCounterDelta(first + second)))
+      case (ReplicatedEntityDelta.Delta.ReplicatedSet(_), ReplicatedEntityDelta.Delta.ReplicatedSet(second))
+          if second.cleared =>
+        Some(later)
+      case (ReplicatedEntityDelta.Delta.ReplicatedSet(first), ReplicatedEntityDelta.Delta.ReplicatedSet(second)) =>
+        val removedAgain = second.removed.toSet
+        Some(
+          ReplicatedEntityDelta.Delta.ReplicatedSet(
+            ReplicatedSetDelta(
+              first.cleared,
+              removed = (first.removed ++ second.removed).distinct,
+              added = (first.added.filterNot(removedAgain.contains) ++ second.added).distinct)))
+      case _ => None
+    }
+}
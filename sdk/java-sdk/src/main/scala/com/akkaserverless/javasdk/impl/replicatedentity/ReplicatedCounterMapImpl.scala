@@ -16,7 +16,6 @@
 
 package com.akkaserverless.javasdk.impl.replicatedentity
 
-import com.akkaserverless.javasdk.impl.AnySupport
 import com.akkaserverless.javasdk.replicatedentity.ReplicatedCounterMap
 import com.akkaserverless.protocol.replicated_entity.{
   ReplicatedCounterMapDelta,
@@ -27,10 +26,12 @@ import com.akkaserverless.protocol.replicated_entity.{
 import scala.jdk.CollectionConverters._
 
 private[replicatedentity] final class ReplicatedCounterMapImpl[K](
-    anySupport: AnySupport,
+    serializer: ReplicatedDataSerializer,
     counters: Map[K, ReplicatedCounterImpl] = Map.empty[K, ReplicatedCounterImpl],
     removed: Set[K] = Set.empty[K],
-    cleared: Boolean = false)
+    cleared: Boolean = false,
+    // keys that have been incremented or decremented since the last reset
+    updated: Set[K] = Set.empty[K])
     extends ReplicatedCounterMap[K]
     with InternalReplicatedData {
 
@@ -42,7 +43,7 @@ private[replicatedentity] final class ReplicatedCounterMapImpl[K](
   override def increment(key: K, amount: Long): ReplicatedCounterMapImpl[K] = {
     val counter = counters.getOrElse(key, new ReplicatedCounterImpl)
     val incremented = counter.increment(amount)
-    new ReplicatedCounterMapImpl(anySupport, counters.updated(key, incremented), removed, cleared)
+    new ReplicatedCounterMapImpl(serializer, counters.updated(key, incremented), removed, cleared, updated + key)
   }
 
   override def decrement(key: K, amount: Long): ReplicatedCounterMapImpl[K] = increment(key, -amount)
@@ -51,12 +52,12 @@ private[replicatedentity] final class ReplicatedCounterMapImpl[K](
     if (!counters.contains(key)) {
       this
     } else {
-      new ReplicatedCounterMapImpl(anySupport, counters.removed(key), removed + key, cleared)
+      new ReplicatedCounterMapImpl(serializer, counters.removed(key), removed + key, cleared, updated - key)
     }
   }
 
   override def clear(): ReplicatedCounterMapImpl[K] =
-    new ReplicatedCounterMapImpl[K](anySupport, cleared = true)
+    new ReplicatedCounterMapImpl[K](serializer, cleared = true)
 
   override def size: Int = counters.size
 
@@ -66,34 +67,39 @@ private[replicatedentity] final class ReplicatedCounterMapImpl[K](
 
   override def keySet: java.util.Set[K] = counters.keySet.asJava
 
-  override def hasDelta: Boolean = cleared || removed.nonEmpty || counters.values.exists(_.hasDelta)
+  // only counters that were incremented since the last reset can have a delta
+  override def hasDelta: Boolean = cleared || removed.nonEmpty || updated.exists(key => counters(key).hasDelta)
 
   override def getDelta: ReplicatedEntityDelta.Delta =
     ReplicatedEntityDelta.Delta.ReplicatedCounterMap(
       ReplicatedCounterMapDelta(
         cleared = cleared,
-        removed = removed.map(anySupport.encodeScala).toSeq,
-        updated = counters.collect {
+        removed = removed.map(serializer.encodeKey).toSeq,
+        updated = updated.iterator.map(key => key -> counters(key)).collect {
           case (key, counter) if counter.hasDelta =>
-            ReplicatedCounterMapEntryDelta(Some(anySupport.encodeScala(key)), counter.getDelta.counter)
+            ReplicatedCounterMapEntryDelta(Some(serializer.encodeKey(key)), counter.getDelta.counter)
         }.toSeq))
 
   override def resetDelta(): ReplicatedCounterMapImpl[K] =
-    if (hasDelta) new ReplicatedCounterMapImpl(anySupport, counters.view.mapValues(_.resetDelta()).toMap) else this
+    if (hasDelta)
+      new ReplicatedCounterMapImpl(
+        serializer,
+        updated.foldLeft(counters)((map, key) => map.updated(key, map(key).resetDelta())))
+    else this
 
   override val applyDelta: PartialFunction[ReplicatedEntityDelta.Delta, ReplicatedCounterMapImpl[K]] = {
     case ReplicatedEntityDelta.Delta.ReplicatedCounterMap(ReplicatedCounterMapDelta(cleared, removed, updated, _)) =>
       val reducedCounters =
         if (cleared) Map.empty[K, ReplicatedCounterImpl]
-        else counters -- removed.map(key => anySupport.decode(key).asInstanceOf[K])
-      val updatedCounters = updated.foldLeft(reducedCounters) {
-        case (map, ReplicatedCounterMapEntryDelta(Some(encodedKey), Some(delta), _)) =>
-          val key = anySupport.decode(encodedKey).asInstanceOf[K]
-          val counter = map.getOrElse(key, new ReplicatedCounterImpl)
-          map.updated(key, counter.applyDelta(ReplicatedEntityDelta.Delta.Counter(delta)))
-        case (map, _) => map
+        else counters -- removed.map(key => serializer.decodeKey(key).asInstanceOf[K])
+      val updatedCounters = InternalReplicatedData.updateEntries(reducedCounters, updated) {
+        case (ReplicatedCounterMapEntryDelta(Some(encodedKey), Some(delta), _), lookup) =>
+          val key = serializer.decodeKey(encodedKey).asInstanceOf[K]
+          val counter = lookup(key).getOrElse(new ReplicatedCounterImpl)
+          Some(key -> counter.applyDelta(ReplicatedEntityDelta.Delta.Counter(delta)))
+        case _ => None
       }
-      new ReplicatedCounterMapImpl(anySupport, updatedCounters)
+      new ReplicatedCounterMapImpl(serializer, updatedCounters)
   }
 
   override def toString = s"ReplicatedCounterMap(${counters.map { case (k, v) => s"$k->$v" }.mkString(",")})"
@@ -17,9 +17,8 @@
 package com.akkaserverless.javasdk.impl.replicatedentity
 
 import com.akkaserverless.javasdk.replicatedentity._
-import com.akkaserverless.javasdk.impl.AnySupport
 
-final class ReplicatedDataFactoryImpl(anySupport: AnySupport) extends ReplicatedDataFactory {
+final class ReplicatedDataFactoryImpl(serializer: ReplicatedDataSerializer) extends ReplicatedDataFactory {
   private var _internalData: InternalReplicatedData = _
 
   def internalData: InternalReplicatedData = _internalData
@@ -35,22 +34,22 @@ final class ReplicatedDataFactoryImpl(anySupport: AnySupport) extends Replicated
     newData(new ReplicatedCounterImpl)
 
   override def newReplicatedCounterMap[K](): ReplicatedCounterMap[K] =
-    newData(new ReplicatedCounterMapImpl[K](anySupport))
+    newData(new ReplicatedCounterMapImpl[K](serializer))
 
   override def newReplicatedSet[T](): ReplicatedSet[T] =
-    newData(new ReplicatedSetImpl[T](anySupport))
+    newData(new ReplicatedSetImpl[T](serializer))
 
   override def newRegister[T](value: T): ReplicatedRegister[T] =
-    newData(new ReplicatedRegisterImpl[T](anySupport, value, Option(value).map(anySupport.encodeScala)))
+    newData(new ReplicatedRegisterImpl[T](serializer, value, Option(value).map(serializer.encode)))
 
   override def newReplicatedRegisterMap[K, V](): ReplicatedRegisterMap[K, V] =
-    newData(new ReplicatedRegisterMapImpl[K, V](anySupport))
+    newData(new ReplicatedRegisterMapImpl[K, V](serializer))
 
   override def newReplicatedMultiMap[K, V](): ReplicatedMultiMap[K, V] =
-    newData(new ReplicatedMultiMapImpl[K, V](anySupport))
+    newData(new ReplicatedMultiMapImpl[K, V](serializer))
 
   override def newReplicatedMap[K, V <: ReplicatedData](): ReplicatedMap[K, V] =
-    newData(new ReplicatedMapImpl[K, InternalReplicatedData](anySupport)).asInstanceOf[ReplicatedMap[K, V]]
+    newData(new ReplicatedMapImpl[K, InternalReplicatedData](serializer)).asInstanceOf[ReplicatedMap[K, V]]
 
   override def newVote(): ReplicatedVote =
     newData(new ReplicatedVoteImpl)
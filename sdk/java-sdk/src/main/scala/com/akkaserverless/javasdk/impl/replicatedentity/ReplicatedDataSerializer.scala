@@ -0,0 +1,125 @@
+/*
+ * Copyright 2021 Lightbend Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.akkaserverless.javasdk.impl.replicatedentity
+
+import com.akkaserverless.javasdk.impl.AnySupport
+import com.google.protobuf.any.{ Any => ScalaPbAny }
+
+import java.util
+import java.util.function.IntFunction
+
+/**
+ * INTERNAL API
+ *
+ * Serialization for the replicated data of a single entity.
+ *
+ * Keys of replicated maps and elements of replicated sets tend to be changed over and over again, so their encoded
+ * form is cached, together with the reverse mapping so that the same keys in incoming deltas don't have to be parsed
+ * again. Both caches are bounded, evicting the least recently used keys. An entity is only driven by one stream at a
+ * time, so the caches are not synchronized.
+ *
+ * Data built from a large delta can optionally have its keys and values decoded in parallel up front, see
+ * [[withParallelDecoding]].
+ */
+final class ReplicatedDataSerializer(
+    val anySupport: AnySupport,
+    maxCachedKeys: Int = ReplicatedDataSerializer.DefaultMaxCachedKeys,
+    parallelDecodingThreshold: Int = ReplicatedDataSerializer.ParallelDecodingDisabled) {
+  import ReplicatedDataSerializer.lruCache
+
+  // plain access ordered LinkedHashMaps, even get changes them, which relies on the entity's data only being used from
+  // one thread at a time, parallel decoding doesn't touch them
+  private val encodedKeys = lruCache[Any, ScalaPbAny](maxCachedKeys)
+  private val decodedKeys = lruCache[ScalaPbAny, AnyRef](maxCachedKeys)
+
+  // only set while building data with parallel decoding
+  private var preDecoded: util.HashMap[ScalaPbAny, AnyRef] = _
+
+  /**
+   * Build replicated data, with the given encoded keys and values it contains decoded in parallel on the common fork
+   * join pool beforehand, if there are at least as many as the parallel decoding threshold. Each distinct encoding is
+   * decoded once. The decoded keys and values are then picked up by the sequential build, which gives the same result
+   * as decoding them one by one.
+   */
+  def withParallelDecoding[T](encoded: => Iterator[ScalaPbAny])(build: => T): T =
+    if (parallelDecodingThreshold <= 0 || (preDecoded ne null) || !encoded.drop(parallelDecodingThreshold - 1).hasNext)
+      build
+    else {
+      val values = encoded.distinct.toArray
+      val decoded = new Array[AnyRef](values.length)
+      util.Arrays.parallelSetAll(
+        decoded,
+        new IntFunction[AnyRef] {
+          override def apply(i: Int): AnyRef = anySupport.decode(values(i)).asInstanceOf[AnyRef]
+        })
+      preDecoded = new util.HashMap[ScalaPbAny, AnyRef](values.length * 2)
+      var i = 0
+      while (i < values.length) {
+        preDecoded.put(values(i), decoded(i))
+        i += 1
+      }
+      try build
+      finally preDecoded = null
+    }
+
+  def encodeKey(key: Any): ScalaPbAny = {
+    val cached = encodedKeys.get(key)
+    if (cached ne null) cached
+    else {
+      val encoded = anySupport.encodeScala(key)
+      encodedKeys.put(key, encoded)
+      decodedKeys.put(encoded, key.asInstanceOf[AnyRef])
+      encoded
+    }
+  }
+
+  def decodeKey(encoded: ScalaPbAny): Any = {
+    val cached = decodedKeys.get(encoded)
+    if (cached ne null) cached
+    else {
+      val preDecodedKey = if (preDecoded eq null) null else preDecoded.get(encoded)
+      val key = if (preDecodedKey ne null) preDecodedKey else anySupport.decode(encoded)
+      decodedKeys.put(encoded, key.asInstanceOf[AnyRef])
+      encodedKeys.put(key, encoded)
+      key
+    }
+  }
+
+  def encode(value: Any): ScalaPbAny = anySupport.encodeScala(value)
+
+  def decode(encoded: ScalaPbAny): Any = {
+    val preDecodedValue = if (preDecoded eq null) null else preDecoded.get(encoded)
+    if (preDecodedValue eq null) anySupport.decode(encoded)
+    else if (AnySupport.isImmutable(preDecodedValue)) preDecodedValue
+    else {
+      // a mutable value must not be shared between entries, so it is only handed out once
+      preDecoded.remove(encoded)
+      preDecodedValue
+    }
+  }
+}
+
+object ReplicatedDataSerializer {
+  // there are two caches per active entity, so this is kept small, it only needs to cover the keys that change often
+  final val DefaultMaxCachedKeys = 1000
+  final val ParallelDecodingDisabled = 0
+
+  private def lruCache[K, V](maxSize: Int): util.LinkedHashMap[K, V] =
+    new util.LinkedHashMap[K, V](16, 0.75f, true) {
+      override def removeEldestEntry(eldest: util.Map.Entry[K, V]): Boolean = size() > maxSize
+    }
+}
@@ -30,7 +30,6 @@ import com.akkaserverless.protocol.entity.Command
 import com.akkaserverless.protocol.replicated_entity.ReplicatedEntityStreamIn.{ Message => In }
 import com.akkaserverless.protocol.replicated_entity.ReplicatedEntityStreamOut.{ Message => Out }
 import com.akkaserverless.protocol.replicated_entity._
-import com.google.protobuf.any.{ Any => ScalaPbAny }
 import com.google.protobuf.Descriptors
 import scala.util.control.NonFatal
 
@@ -97,17 +96,23 @@ final class ReplicatedEntitiesImpl(
         log.error(error, failureMessage(error))
         ReplicatedEntityStreamOut(Out.Failure(failure(error)))
       }
+      .async(UserFunctionDispatcher.Id)
 
   private def runEntity(
       init: ReplicatedEntityInit): Flow[ReplicatedEntityStreamIn, ReplicatedEntityStreamOut, NotUsed] = {
     val service =
       services.getOrElse(init.serviceName, throw ProtocolException(init, s"Service not found: ${init.serviceName}"))
 
+    val serializer = new ReplicatedDataSerializer(
+      service.anySupport,
+      parallelDecodingThreshold = service.entityOptions.fold(ReplicatedDataSerializer.ParallelDecodingDisabled)(
+        _.parallelDecodingThreshold))
+
     val initialData = init.delta.map { delta =>
-      ReplicatedEntityDeltaTransformer.create(delta, service.anySupport)
+      ReplicatedEntityDeltaTransformer.create(delta, serializer)
     }
 
-    val runner = new EntityRunner(service, init.entityId, initialData, rootContext, log)
+    val runner = new EntityRunner(service, init.entityId, initialData, serializer, rootContext, log)
 
     Flow[ReplicatedEntityStreamIn]
       .mapConcat { in =>
@@ -126,6 +131,11 @@ final class ReplicatedEntitiesImpl(
             throw ProtocolException(init, "Replicated Entity received empty or unknown message")
         }
       }
+      // nothing can observe deltas that are still pending when the stream completes, so they are left unapplied
+      .concat(Source.lazySource { () =>
+        runner.streamCompleted()
+        Source.empty[ReplicatedEntityStreamOut]
+      })
       .recover { case error =>
         log.error(error, failureMessage(error))
         ReplicatedEntityStreamOut(Out.Failure(failure(error)))
@@ -140,6 +150,7 @@ object ReplicatedEntitiesImpl {
       service: ReplicatedEntityService,
       entityId: String,
       initialData: Option[InternalReplicatedData],
+      serializer: ReplicatedDataSerializer,
       rootContext: Context,
       log: LoggingAdapter) {
 
@@ -152,19 +163,53 @@ object ReplicatedEntitiesImpl {
       }
     }
 
-    handler._internalInitialData(initialData, service.anySupport)
+    handler._internalInitialData(initialData, serializer)
+
+    private val maxCoalescedDeltas = service.entityOptions.fold(1)(_.maxCoalescedDeltas)
+
+    // deltas are only observed by commands, so they can wait for the next command, merged where their type allows it
+    private var pendingDeltas = Vector.empty[ReplicatedEntityDelta]
+    private var pendingDeltaCount = 0
 
     def handleDelta(delta: ReplicatedEntityDelta): Unit = {
-      handler._internalApplyDelta(entityId, delta)
+      if (maxCoalescedDeltas <= 1) handler._internalApplyDelta(entityId, delta)
+      else {
+        // the type of the data never changes, so a delta that doesn't fit can fail the entity before it is queued
+        handler._internalCheckDelta(entityId, delta)
+        val merged =
+          pendingDeltas.lastOption.flatMap(last => InternalReplicatedData.mergeDeltas(last.delta, delta.delta))
+        pendingDeltas = merged match {
+          case Some(mergedDelta) => pendingDeltas.init :+ ReplicatedEntityDelta(mergedDelta)
+          case None              => pendingDeltas :+ delta
+        }
+        pendingDeltaCount += 1
+        if (pendingDeltaCount >= maxCoalescedDeltas) applyPendingDeltas()
+      }
     }
 
+    private def applyPendingDeltas(): Unit =
+      if (pendingDeltas.nonEmpty) {
+        handler._internalApplyDeltas(entityId, pendingDeltas)
+        pendingDeltas = Vector.empty
+        pendingDeltaCount = 0
+      }
+
+    def streamCompleted(): Unit =
+      if (pendingDeltaCount > 0)
+        log.debug(
+          "Replicated entity [{}] stopped with {} deltas that weren't applied, since no command came after them",
+          entityId,
+          pendingDeltaCount)
+
     def handleCommand(command: Command): ReplicatedEntityStreamOut = {
       if (entityId != command.entityId)
         throw ProtocolException(command, "Entity is not the intended recipient of command")
 
+      applyPendingDeltas()
+
       val context = new ReplicatedEntityCommandContext(entityId, command, rootContext)
       val payload = command.payload.getOrElse(throw ProtocolException(command, "No command payload"))
-      val cmd = service.anySupport.decode(ScalaPbAny.toJavaProto(payload))
+      val cmd = service.anySupport.decode(payload)
 
       val CommandResult(effect: ReplicatedEntityEffectImpl[_, _]) =
         try {
@@ -178,7 +223,7 @@ object ReplicatedEntitiesImpl {
 
       val serializedSecondaryEffect = effect.secondaryEffect match {
         case MessageReplyImpl(message, metadata, sideEffects) =>
-          MessageReplyImpl(service.anySupport.encodeJava(message), metadata, sideEffects)
+          MessageReplyImpl(service.anySupport.encodeScala(message), metadata, sideEffects)
         case other => other
       }
 
@@ -236,7 +281,7 @@ object ReplicatedEntitiesImpl {
 
     override val commandName: String = command.name
 
-    override val metadata: Metadata = new MetadataImpl(command.metadata.map(_.entries.toVector).getOrElse(Nil))
+    override val metadata: Metadata = MetadataImpl.of(command.metadata)
 
     override def serviceCallFactory(): ServiceCallFactory = rootContext.serviceCallFactory()
   }
@@ -16,33 +16,55 @@
 
 package com.akkaserverless.javasdk.impl.replicatedentity
 
-import com.akkaserverless.javasdk.impl.AnySupport
 import com.akkaserverless.protocol.replicated_entity.ReplicatedEntityDelta
+import com.google.protobuf.any.{ Any => ScalaPbAny }
 
 private[replicatedentity] object ReplicatedEntityDeltaTransformer {
 
-  def create(delta: ReplicatedEntityDelta, anySupport: AnySupport): InternalReplicatedData = {
+  def create(delta: ReplicatedEntityDelta, serializer: ReplicatedDataSerializer): InternalReplicatedData = {
     val data = delta.delta match {
       case ReplicatedEntityDelta.Delta.Counter(_) =>
         new ReplicatedCounterImpl
       case ReplicatedEntityDelta.Delta.ReplicatedSet(_) =>
-        new ReplicatedSetImpl[Any](anySupport)
+        new ReplicatedSetImpl[Any](serializer)
       case ReplicatedEntityDelta.Delta.Register(_) =>
-        new ReplicatedRegisterImpl[Any](anySupport)
+        new ReplicatedRegisterImpl[Any](serializer)
       case ReplicatedEntityDelta.Delta.ReplicatedMap(_) =>
-        new ReplicatedMapImpl[Any, InternalReplicatedData](anySupport)
+        new ReplicatedMapImpl[Any, InternalReplicatedData](serializer)
       case ReplicatedEntityDelta.Delta.ReplicatedCounterMap(_) =>
-        new ReplicatedCounterMapImpl[Any](anySupport)
+        new ReplicatedCounterMapImpl[Any](serializer)
       case ReplicatedEntityDelta.Delta.ReplicatedRegisterMap(_) =>
-        new ReplicatedRegisterMapImpl[Any, Any](anySupport)
+        new ReplicatedRegisterMapImpl[Any, Any](serializer)
       case ReplicatedEntityDelta.Delta.ReplicatedMultiMap(_) =>
-        new ReplicatedMultiMapImpl[Any, Any](anySupport)
+        new ReplicatedMultiMapImpl[Any, Any](serializer)
       case ReplicatedEntityDelta.Delta.Vote(_) =>
         new ReplicatedVoteImpl
       case _ =>
         throw new RuntimeException(s"Received unexpected replicated entity delta: ${delta.delta}")
     }
-    data.applyDelta(delta.delta)
+    serializer.withParallelDecoding(encodedValues(delta.delta)) {
+      data.applyDelta(delta.delta)
+    }
   }
 
+  private def encodedValues(delta: ReplicatedEntityDelta.Delta): Iterator[ScalaPbAny] =
+    delta match {
+      case ReplicatedEntityDelta.Delta.ReplicatedSet(set) =>
+        set.added.iterator
+      case ReplicatedEntityDelta.Delta.Register(register) =>
+        register.value.iterator
+      case ReplicatedEntityDelta.Delta.ReplicatedMap(map) =>
+        (map.updated.iterator ++ map.added.iterator).flatMap { entry =>
+          entry.key.iterator ++ entry.delta.iterator.flatMap(child => encodedValues(child.delta))
+        }
+      case ReplicatedEntityDelta.Delta.ReplicatedCounterMap(map) =>
+        map.updated.iterator.flatMap(_.key)
+      case ReplicatedEntityDelta.Delta.ReplicatedRegisterMap(map) =>
+        map.updated.iterator.flatMap(entry => entry.key.iterator ++ entry.delta.flatMap(_.value).iterator)
+      case ReplicatedEntityDelta.Delta.ReplicatedMultiMap(map) =>
+        map.updated.iterator.flatMap(entry => entry.key.iterator ++ entry.delta.iterator.flatMap(_.added))
+      case _ =>
+        Iterator.empty
+    }
+
 }
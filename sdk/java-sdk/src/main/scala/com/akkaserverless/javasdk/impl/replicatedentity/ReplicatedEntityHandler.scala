@@ -21,7 +21,7 @@ import com.akkaserverless.javasdk.impl.replicatedentity.ReplicatedEntityEffectIm
 
 import java.util.Optional
 import com.akkaserverless.javasdk.replicatedentity.{ CommandContext, ReplicatedData, ReplicatedEntity }
-import com.akkaserverless.javasdk.impl.{ AnySupport, EntityExceptions }
+import com.akkaserverless.javasdk.impl.EntityExceptions
 import com.akkaserverless.protocol.replicated_entity.ReplicatedEntityDelta
 
 object ReplicatedEntityHandler {
@@ -47,11 +47,13 @@ abstract class ReplicatedEntityHandler[D <: ReplicatedData, E <: ReplicatedEntit
 
   /** INTERNAL API */
   // "public" api against the impl/testkit
-  final def _internalInitialData(initialData: Option[InternalReplicatedData], anySupport: AnySupport): Unit =
+  final def _internalInitialData(
+      initialData: Option[InternalReplicatedData],
+      serializer: ReplicatedDataSerializer): Unit =
     initialData match {
       case Some(d) => data = d.asInstanceOf[D]
       case _ =>
-        val dataFactory = new ReplicatedDataFactoryImpl(anySupport)
+        val dataFactory = new ReplicatedDataFactoryImpl(serializer)
         val emptyData = entity.emptyData(dataFactory)
         require(emptyData ne null, "Initial empty data for a replicated entity cannot be null")
         require(emptyData eq dataFactory.internalData, "Replicated data objects must be created with the given factory")
@@ -60,18 +62,35 @@ abstract class ReplicatedEntityHandler[D <: ReplicatedData, E <: ReplicatedEntit
 
   /** INTERNAL API */
   // "public" api against the impl/testkit
-  final def _internalApplyDelta(entityId: String, delta: ReplicatedEntityDelta): Unit = {
-    data = internalData.applyDelta
-      .applyOrElse(
-        delta.delta,
-        { noMatch: ReplicatedEntityDelta.Delta =>
-          throw ProtocolException(
-            entityId,
-            s"Received delta ${noMatch.value.getClass} which doesn't match the expected replicated data type: ${internalData.name}")
-        })
+  final def _internalApplyDelta(entityId: String, delta: ReplicatedEntityDelta): Unit =
+    _internalApplyDeltas(entityId, delta :: Nil)
+
+  /** INTERNAL API */
+  // "public" api against the impl/testkit
+  final def _internalApplyDeltas(entityId: String, deltas: Iterable[ReplicatedEntityDelta]): Unit = {
+    data = deltas
+      .foldLeft(internalData) { (current, delta) =>
+        current.applyDelta.applyOrElse(
+          delta.delta,
+          { noMatch: ReplicatedEntityDelta.Delta => throw unexpectedDelta(entityId, noMatch, current) })
+      }
       .asInstanceOf[D]
   }
 
+  /** INTERNAL API */
+  // "public" api against the impl/testkit
+  final def _internalCheckDelta(entityId: String, delta: ReplicatedEntityDelta): Unit =
+    if (!internalData.applyDelta.isDefinedAt(delta.delta))
+      throw unexpectedDelta(entityId, delta.delta, internalData)
+
+  private def unexpectedDelta(
+      entityId: String,
+      delta: ReplicatedEntityDelta.Delta,
+      data: InternalReplicatedData): EntityExceptions.EntityException =
+    ProtocolException(
+      entityId,
+      s"Received delta ${delta.value.getClass} which doesn't match the expected replicated data type: ${data.name}")
+
   /** INTERNAL API */
   // "public" api against the impl/testkit
   final def _internalHasDelta: Boolean = internalData.hasDelta
@@ -25,7 +25,9 @@ import java.util
 private[impl] case class ReplicatedEntityOptionsImpl(
     override val passivationStrategy: PassivationStrategy,
     override val forwardHeaders: java.util.Set[String],
-    override val writeConsistency: WriteConsistency)
+    override val writeConsistency: WriteConsistency,
+    override val maxCoalescedDeltas: Int,
+    override val parallelDecodingThreshold: Int)
     extends ReplicatedEntityOptions {
 
   override def withPassivationStrategy(strategy: PassivationStrategy): ReplicatedEntityOptions =
@@ -34,6 +36,16 @@ private[impl] case class ReplicatedEntityOptionsImpl(
   override def withWriteConsistency(writeConsistency: WriteConsistency): ReplicatedEntityOptions =
     copy(writeConsistency = writeConsistency)
 
+  override def withMaxCoalescedDeltas(maxCoalescedDeltas: Int): ReplicatedEntityOptions = {
+    require(maxCoalescedDeltas >= 1, "maxCoalescedDeltas must be at least 1")
+    copy(maxCoalescedDeltas = maxCoalescedDeltas)
+  }
+
+  override def withParallelDecodingThreshold(parallelDecodingThreshold: Int): ReplicatedEntityOptions = {
+    require(parallelDecodingThreshold >= 0, "parallelDecodingThreshold must not be negative")
+    copy(parallelDecodingThreshold = parallelDecodingThreshold)
+  }
+
   override def withForwardHeaders(headers: util.Set[String]): ReplicatedEntityOptions =
     copy(forwardHeaders = Collections.unmodifiableSet(new util.HashSet(headers)));
 }
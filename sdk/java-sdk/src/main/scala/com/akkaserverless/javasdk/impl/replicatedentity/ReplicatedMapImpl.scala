@@ -17,7 +17,6 @@
 package com.akkaserverless.javasdk.impl.replicatedentity
 
 import com.akkaserverless.javasdk.replicatedentity.{ ReplicatedDataFactory, ReplicatedMap }
-import com.akkaserverless.javasdk.impl.AnySupport
 import com.akkaserverless.protocol.replicated_entity.{
   ReplicatedEntityDelta,
   ReplicatedMapDelta,
@@ -33,11 +32,13 @@ private object ReplicatedMapImpl {
 }
 
 private[replicatedentity] final class ReplicatedMapImpl[K, V <: InternalReplicatedData](
-    anySupport: AnySupport,
+    serializer: ReplicatedDataSerializer,
     entries: Map[K, V] = Map.empty[K, V],
     added: Set[K] = Set.empty[K],
     removed: Set[K] = Set.empty[K],
-    cleared: Boolean = false)
+    cleared: Boolean = false,
+    // keys that were already in the map before the last reset, and have had their value replaced since
+    updated: Set[K] = Set.empty[K])
     extends ReplicatedMap[K, V]
     with InternalReplicatedData {
 
@@ -51,7 +52,7 @@ private[replicatedentity] final class ReplicatedMapImpl[K, V <: InternalReplicat
   override def getOrElse(key: K, create: function.Function[ReplicatedDataFactory, V]): V =
     entries.getOrElse(
       key, {
-        val dataFactory = new ReplicatedDataFactoryImpl(anySupport)
+        val dataFactory = new ReplicatedDataFactoryImpl(serializer)
         val data = create(dataFactory)
         if (data eq null) {
           throw new IllegalArgumentException(
@@ -63,13 +64,13 @@ private[replicatedentity] final class ReplicatedMapImpl[K, V <: InternalReplicat
         data
       })
 
-  override def update(key: K, value: V): ReplicatedMap[K, V] =
-    new ReplicatedMapImpl(
-      anySupport,
-      entries.updated(key, value),
-      if (entries.contains(key)) added else added + key,
-      removed,
-      cleared)
+  override def update(key: K, value: V): ReplicatedMapImpl[K, V] =
+    if (!entries.contains(key))
+      new ReplicatedMapImpl(serializer, entries.updated(key, value), added + key, removed, cleared, updated)
+    else if (added.contains(key))
+      new ReplicatedMapImpl(serializer, entries.updated(key, value), added, removed, cleared, updated)
+    else
+      new ReplicatedMapImpl(serializer, entries.updated(key, value), added, removed, cleared, updated + key)
 
   override def remove(key: K): ReplicatedMapImpl[K, V] = {
     if (!entries.contains(key)) {
@@ -79,16 +80,16 @@ private[replicatedentity] final class ReplicatedMapImpl[K, V <: InternalReplicat
         clear()
       } else {
         if (added.contains(key)) {
-          new ReplicatedMapImpl(anySupport, entries - key, added - key, removed, cleared)
+          new ReplicatedMapImpl(serializer, entries - key, added - key, removed, cleared, updated)
         } else {
-          new ReplicatedMapImpl(anySupport, entries - key, added, removed + key, cleared)
+          new ReplicatedMapImpl(serializer, entries - key, added, removed + key, cleared, updated - key)
         }
       }
     }
   }
 
   override def clear(): ReplicatedMapImpl[K, V] =
-    new ReplicatedMapImpl[K, V](anySupport, cleared = true)
+    new ReplicatedMapImpl[K, V](serializer, cleared = true)
 
   override def size: Int = entries.size
 
@@ -98,56 +99,65 @@ private[replicatedentity] final class ReplicatedMapImpl[K, V <: InternalReplicat
 
   override def keySet: java.util.Set[K] = entries.keySet.asJava
 
+  // Values are only ever replaced through update, so only the added and updated keys can have a delta. Checking,
+  // getting and resetting the delta is proportional to the number of changed keys rather than the size of the map.
   override def hasDelta: Boolean =
     if (cleared || added.nonEmpty || removed.nonEmpty) {
       true
     } else {
-      entries.values.exists(_.hasDelta)
+      updated.exists(key => entries(key).hasDelta)
     }
 
   override def getDelta: ReplicatedEntityDelta.Delta = {
-    val updatedEntries = (entries -- added).collect {
-      case (key, changed) if changed.hasDelta =>
-        ReplicatedMapEntryDelta(Some(anySupport.encodeScala(key)), Some(ReplicatedEntityDelta(changed.getDelta)))
+    val updatedEntries = updated.flatMap { key =>
+      val changed = entries(key)
+      if (changed.hasDelta)
+        Some(ReplicatedMapEntryDelta(Some(serializer.encodeKey(key)), Some(ReplicatedEntityDelta(changed.getDelta))))
+      else None
     }
     val addedEntries = added.flatMap { key =>
       entries.get(key).map { value =>
-        ReplicatedMapEntryDelta(Some(anySupport.encodeScala(key)), Some(ReplicatedEntityDelta(value.getDelta)))
+        ReplicatedMapEntryDelta(Some(serializer.encodeKey(key)), Some(ReplicatedEntityDelta(value.getDelta)))
       }
     }
     ReplicatedEntityDelta.Delta.ReplicatedMap(
       ReplicatedMapDelta(
         cleared = cleared,
-        removed = removed.map(anySupport.encodeScala).toSeq,
+        removed = removed.map(serializer.encodeKey).toSeq,
         updated = updatedEntries.toSeq,
         added = addedEntries.toSeq))
   }
 
   override def resetDelta(): ReplicatedMapImpl[K, V] =
     if (!hasDelta) this
-    else new ReplicatedMapImpl(anySupport, entries.view.mapValues(_.resetDelta().asInstanceOf[V]).toMap)
+    else {
+      val resetEntries = (added.iterator ++ updated.iterator).foldLeft(entries) { (map, key) =>
+        map.updated(key, map(key).resetDelta().asInstanceOf[V])
+      }
+      new ReplicatedMapImpl(serializer, resetEntries)
+    }
 
   override val applyDelta: PartialFunction[ReplicatedEntityDelta.Delta, ReplicatedMapImpl[K, V]] = {
     case ReplicatedEntityDelta.Delta.ReplicatedMap(ReplicatedMapDelta(cleared, removed, updated, added, _)) =>
       val reducedEntries =
         if (cleared) Map.empty[K, V]
-        else entries -- removed.map(key => anySupport.decode(key).asInstanceOf[K])
-      val updatedEntries = updated.foldLeft(reducedEntries) {
-        case (map, ReplicatedMapEntryDelta(Some(encodedKey), Some(ReplicatedEntityDelta(delta, _)), _)) =>
-          val key = anySupport.decode(encodedKey).asInstanceOf[K]
-          map.get(key) match {
-            case Some(value) => map.updated(key, value.applyDelta(delta).asInstanceOf[V])
-            case _           => log.warn("ReplicatedMap entry to update with key [{}] not found in map", key); map
+        else entries -- removed.map(key => serializer.decodeKey(key).asInstanceOf[K])
+      val updatedEntries = InternalReplicatedData.updateEntries(reducedEntries, updated) {
+        case (ReplicatedMapEntryDelta(Some(encodedKey), Some(ReplicatedEntityDelta(delta, _)), _), lookup) =>
+          val key = serializer.decodeKey(encodedKey).asInstanceOf[K]
+          lookup(key) match {
+            case Some(value) => Some(key -> value.applyDelta(delta).asInstanceOf[V])
+            case _           => log.warn("ReplicatedMap entry to update with key [{}] not found in map", key); None
           }
-        case (map, _) => map
+        case _ => None
       }
-      val newEntries = added.foldLeft(updatedEntries) {
-        case (map, ReplicatedMapEntryDelta(Some(encodedKey), Some(delta), _)) =>
-          val key = anySupport.decode(encodedKey).asInstanceOf[K]
-          map.updated(key, ReplicatedEntityDeltaTransformer.create(delta, anySupport).asInstanceOf[V])
-        case (map, _) => map
+      val newEntries = InternalReplicatedData.updateEntries(updatedEntries, added) {
+        case (ReplicatedMapEntryDelta(Some(encodedKey), Some(delta), _), _) =>
+          val key = serializer.decodeKey(encodedKey).asInstanceOf[K]
+          Some(key -> ReplicatedEntityDeltaTransformer.create(delta, serializer).asInstanceOf[V])
+        case _ => None
       }
-      new ReplicatedMapImpl(anySupport, newEntries)
+      new ReplicatedMapImpl(serializer, newEntries)
   }
 
   override def toString = s"ReplicatedMap(${entries.map { case (k, v) => s"$k->$v" }.mkString(",")})"
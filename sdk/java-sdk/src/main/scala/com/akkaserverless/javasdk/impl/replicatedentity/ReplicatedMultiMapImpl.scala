@@ -16,7 +16,6 @@
 
 package com.akkaserverless.javasdk.impl.replicatedentity
 
-import com.akkaserverless.javasdk.impl.AnySupport
 import com.akkaserverless.javasdk.replicatedentity.ReplicatedMultiMap
 import com.akkaserverless.protocol.replicated_entity.{
   ReplicatedEntityDelta,
@@ -28,10 +27,14 @@ import java.util.{ Collection => JCollection, Collections => JCollections, Set =
 import scala.jdk.CollectionConverters._
 
 private[replicatedentity] final class ReplicatedMultiMapImpl[K, V](
-    anySupport: AnySupport,
+    serializer: ReplicatedDataSerializer,
     entries: Map[K, ReplicatedSetImpl[V]] = Map.empty[K, ReplicatedSetImpl[V]],
     removed: Set[K] = Set.empty[K],
-    cleared: Boolean = false)
+    cleared: Boolean = false,
+    // keys that have had values added or removed since the last reset
+    updated: Set[K] = Set.empty[K],
+    // total number of values over all keys
+    totalSize: Int = 0)
     extends ReplicatedMultiMap[K, V]
     with InternalReplicatedData {
 
@@ -41,34 +44,58 @@ private[replicatedentity] final class ReplicatedMultiMapImpl[K, V](
   override def get(key: K): JSet[V] = entries.get(key).fold(JCollections.emptySet[V])(_.elements)
 
   override def put(key: K, value: V): ReplicatedMultiMapImpl[K, V] = {
-    val values = entries.getOrElse(key, new ReplicatedSetImpl[V](anySupport))
-    val updated = values.add(value)
-    new ReplicatedMultiMapImpl(anySupport, entries.updated(key, updated), removed, cleared)
+    val values = entries.getOrElse(key, new ReplicatedSetImpl[V](serializer))
+    val newValues = values.add(value)
+    withValues(key, values, newValues)
   }
 
   override def putAll(key: K, values: JCollection[V]): ReplicatedMultiMapImpl[K, V] =
-    values.asScala.foldLeft(this) { case (map, value) => map.put(key, value) }
+    if (values.isEmpty) this
+    else {
+      val currentValues = entries.getOrElse(key, new ReplicatedSetImpl[V](serializer))
+      withValues(key, currentValues, currentValues.addAll(values))
+    }
+
+  private def withValues(
+      key: K,
+      oldValues: ReplicatedSetImpl[V],
+      newValues: ReplicatedSetImpl[V]): ReplicatedMultiMapImpl[K, V] =
+    if (newValues eq oldValues) this
+    else
+      new ReplicatedMultiMapImpl(
+        serializer,
+        entries.updated(key, newValues),
+        removed,
+        cleared,
+        updated + key,
+        totalSize - oldValues.size + newValues.size)
 
   override def remove(key: K, value: V): ReplicatedMultiMapImpl[K, V] = {
     entries.get(key).fold(this) { values =>
-      val updated = values.remove(value)
-      if (updated.isEmpty) removeAll(key)
-      else new ReplicatedMultiMapImpl(anySupport, entries.updated(key, updated), removed, cleared)
+      val newValues = values.remove(value)
+      if (newValues.isEmpty) removeAll(key)
+      else withValues(key, values, newValues)
     }
   }
 
   override def removeAll(key: K): ReplicatedMultiMapImpl[K, V] = {
-    if (!entries.contains(key)) {
-      this
-    } else {
-      new ReplicatedMultiMapImpl(anySupport, entries.removed(key), removed + key, cleared)
+    entries.get(key) match {
+      case None => this
+      case Some(values) =>
+        new ReplicatedMultiMapImpl(
+          serializer,
+          entries.removed(key),
+          removed + key,
+          cleared,
+          updated - key,
+          totalSize - values.size)
     }
   }
 
   override def clear(): ReplicatedMultiMapImpl[K, V] =
-    new ReplicatedMultiMapImpl[K, V](anySupport, cleared = true)
+    new ReplicatedMultiMapImpl[K, V](serializer, cleared = true)
 
-  override def size: Int = entries.values.map(_.size).sum
+  override def size: Int = totalSize
 
   override def isEmpty: Boolean = entries.isEmpty
 
@@ -78,34 +105,46 @@ private[replicatedentity] final class ReplicatedMultiMapImpl[K, V](
 
   override def keySet: JSet[K] = entries.keySet.asJava
 
-  override def hasDelta: Boolean = cleared || removed.nonEmpty || entries.values.exists(_.hasDelta)
+  // only the value sets of keys that were put to or removed from since the last reset can have a delta
+  override def hasDelta: Boolean = cleared || removed.nonEmpty || updated.exists(key => entries(key).hasDelta)
 
   override def getDelta: ReplicatedEntityDelta.Delta =
     ReplicatedEntityDelta.Delta.ReplicatedMultiMap(
       ReplicatedMultiMapDelta(
         cleared = cleared,
-        removed = removed.map(anySupport.encodeScala).toSeq,
-        updated = entries.collect {
+        removed = removed.map(serializer.encodeKey).toSeq,
+        updated = updated.iterator.map(key => key -> entries(key)).collect {
           case (key, values) if values.hasDelta =>
-            ReplicatedMultiMapEntryDelta(Some(anySupport.encodeScala(key)), values.getDelta.replicatedSet)
+            ReplicatedMultiMapEntryDelta(Some(serializer.encodeKey(key)), values.getDelta.replicatedSet)
         }.toSeq))
 
   override def resetDelta(): ReplicatedMultiMapImpl[K, V] =
-    if (hasDelta) new ReplicatedMultiMapImpl(anySupport, entries.view.mapValues(_.resetDelta()).toMap) else this
+    if (hasDelta)
+      new ReplicatedMultiMapImpl(
+        serializer,
+        updated.foldLeft(entries)((map, key) => map.updated(key, map(key).resetDelta())),
+        totalSize = totalSize)
+    else this
 
   override val applyDelta: PartialFunction[ReplicatedEntityDelta.Delta, ReplicatedMultiMapImpl[K, V]] = {
     case ReplicatedEntityDelta.Delta.ReplicatedMultiMap(ReplicatedMultiMapDelta(cleared, removed, updated, _)) =>
-      val reducedEntries =
-        if (cleared) Map.empty[K, ReplicatedSetImpl[V]]
-        else entries -- removed.map(key => anySupport.decode(key).asInstanceOf[K])
-      val updatedEntries = updated.foldLeft(reducedEntries) {
-        case (map, ReplicatedMultiMapEntryDelta(Some(encodedKey), Some(delta), _)) =>
-          val key = anySupport.decode(encodedKey).asInstanceOf[K]
-          val values = map.getOrElse(key, new ReplicatedSetImpl[V](anySupport))
-          map.updated(key, values.applyDelta(ReplicatedEntityDelta.Delta.ReplicatedSet(delta)))
-        case (map, _) => map
+      val (reducedEntries, reducedSize) =
+        if (cleared) (Map.empty[K, ReplicatedSetImpl[V]], 0)
+        else {
+          val removedKeys = removed.iterator.map(key => serializer.decodeKey(key).asInstanceOf[K]).toSet
+          (entries -- removedKeys, totalSize - removedKeys.iterator.flatMap(entries.get).map(_.size).sum)
+        }
+      var updatedSize = reducedSize
+      val updatedEntries = InternalReplicatedData.updateEntries(reducedEntries, updated) {
+        case (ReplicatedMultiMapEntryDelta(Some(encodedKey), Some(delta), _), lookup) =>
+          val key = serializer.decodeKey(encodedKey).asInstanceOf[K]
+          val values = lookup(key).getOrElse(new ReplicatedSetImpl[V](serializer))
+          val newValues = values.applyDelta(ReplicatedEntityDelta.Delta.ReplicatedSet(delta))
+          updatedSize += newValues.size - values.size
+          Some(key -> newValues)
+        case _ => None
       }
-      new ReplicatedMultiMapImpl(anySupport, updatedEntries)
+      new ReplicatedMultiMapImpl(serializer, updatedEntries, totalSize = updatedSize)
   }
 
   override def toString = s"ReplicatedMultiMap(${entries.map { case (k, v) => s"$k->$v" }.mkString(",")})"
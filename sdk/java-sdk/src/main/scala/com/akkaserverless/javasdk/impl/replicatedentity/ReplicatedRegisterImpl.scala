@@ -16,7 +16,6 @@
 
 package com.akkaserverless.javasdk.impl.replicatedentity
 
-import com.akkaserverless.javasdk.impl.AnySupport
 import com.akkaserverless.protocol.replicated_entity.{
   ReplicatedEntityClock,
   ReplicatedEntityDelta,
@@ -28,7 +27,7 @@ import java.util.Objects
 import com.akkaserverless.javasdk.replicatedentity.ReplicatedRegister
 
 private[replicatedentity] final class ReplicatedRegisterImpl[T](
-    anySupport: AnySupport,
+    serializer: ReplicatedDataSerializer,
     value: T = null.asInstanceOf[T],
     deltaValue: Option[ScalaPbAny] = None,
     deltaClock: ReplicatedRegister.Clock = ReplicatedRegister.Clock.DEFAULT,
@@ -44,7 +43,7 @@ private[replicatedentity] final class ReplicatedRegisterImpl[T](
   override def set(newValue: T, clock: ReplicatedRegister.Clock, customClockValue: Long): ReplicatedRegisterImpl[T] = {
     Objects.requireNonNull(newValue)
     if (value != newValue || deltaClock != clock || deltaCustomClockValue != customClockValue) {
-      new ReplicatedRegisterImpl(anySupport, newValue, Some(anySupport.encodeScala(newValue)), clock, customClockValue)
+      new ReplicatedRegisterImpl(serializer, newValue, Some(serializer.encode(newValue)), clock, customClockValue)
     } else this
   }
 
@@ -55,11 +54,11 @@ private[replicatedentity] final class ReplicatedRegisterImpl[T](
       ReplicatedRegisterDelta(deltaValue, convertClock(deltaClock), deltaCustomClockValue))
 
   override def resetDelta(): ReplicatedRegisterImpl[T] =
-    if (hasDelta) new ReplicatedRegisterImpl(anySupport, value) else this
+    if (hasDelta) new ReplicatedRegisterImpl(serializer, value) else this
 
   override val applyDelta: PartialFunction[ReplicatedEntityDelta.Delta, ReplicatedRegisterImpl[T]] = {
     case ReplicatedEntityDelta.Delta.Register(ReplicatedRegisterDelta(Some(any), _, _, _)) =>
-      new ReplicatedRegisterImpl(anySupport, anySupport.decode(any).asInstanceOf[T])
+      new ReplicatedRegisterImpl(serializer, serializer.decode(any).asInstanceOf[T])
   }
 
   private def convertClock(clock: ReplicatedRegister.Clock): ReplicatedEntityClock =
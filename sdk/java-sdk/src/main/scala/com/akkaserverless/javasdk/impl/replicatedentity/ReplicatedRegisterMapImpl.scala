@@ -16,7 +16,6 @@
 
 package com.akkaserverless.javasdk.impl.replicatedentity
 
-import com.akkaserverless.javasdk.impl.AnySupport
 import com.akkaserverless.javasdk.replicatedentity.{ ReplicatedRegister, ReplicatedRegisterMap }
 import com.akkaserverless.protocol.replicated_entity.{
   ReplicatedEntityDelta,
@@ -28,10 +27,12 @@ import scala.jdk.CollectionConverters._
 import scala.jdk.OptionConverters._
 
 private[replicatedentity] final class ReplicatedRegisterMapImpl[K, V](
-    anySupport: AnySupport,
+    serializer: ReplicatedDataSerializer,
     registers: Map[K, ReplicatedRegisterImpl[V]] = Map.empty[K, ReplicatedRegisterImpl[V]],
     removed: Set[K] = Set.empty[K],
-    cleared: Boolean = false)
+    cleared: Boolean = false,
+    // keys that have been set since the last reset
+    updated: Set[K] = Set.empty[K])
     extends ReplicatedRegisterMap[K, V]
     with InternalReplicatedData {
 
@@ -45,21 +46,21 @@ private[replicatedentity] final class ReplicatedRegisterMapImpl[K, V](
       value: V,
       clock: ReplicatedRegister.Clock,
       customClockValue: Long): ReplicatedRegisterMapImpl[K, V] = {
-    val register = registers.getOrElse(key, new ReplicatedRegisterImpl[V](anySupport))
-    val updated = register.set(value, clock, customClockValue)
-    new ReplicatedRegisterMapImpl(anySupport, registers.updated(key, updated), removed, cleared)
+    val register = registers.getOrElse(key, new ReplicatedRegisterImpl[V](serializer))
+    val newRegister = register.set(value, clock, customClockValue)
+    new ReplicatedRegisterMapImpl(serializer, registers.updated(key, newRegister), removed, cleared, updated + key)
   }
 
   override def remove(key: K): ReplicatedRegisterMapImpl[K, V] = {
     if (!registers.contains(key)) {
       this
     } else {
-      new ReplicatedRegisterMapImpl(anySupport, registers.removed(key), removed + key, cleared)
+      new ReplicatedRegisterMapImpl(serializer, registers.removed(key), removed + key, cleared, updated - key)
     }
   }
 
   override def clear(): ReplicatedRegisterMapImpl[K, V] =
-    new ReplicatedRegisterMapImpl[K, V](anySupport, cleared = true)
+    new ReplicatedRegisterMapImpl[K, V](serializer, cleared = true)
 
   override def size: Int = registers.size
 
@@ -69,34 +70,39 @@ private[replicatedentity] final class ReplicatedRegisterMapImpl[K, V](
 
   override def keySet: java.util.Set[K] = registers.keySet.asJava
 
-  override def hasDelta: Boolean = cleared || removed.nonEmpty || registers.values.exists(_.hasDelta)
+  // only registers that were set since the last reset can have a delta
+  override def hasDelta: Boolean = cleared || removed.nonEmpty || updated.exists(key => registers(key).hasDelta)
 
   override def getDelta: ReplicatedEntityDelta.Delta =
     ReplicatedEntityDelta.Delta.ReplicatedRegisterMap(
       ReplicatedRegisterMapDelta(
         cleared = cleared,
-        removed = removed.map(anySupport.encodeScala).toSeq,
-        updated = registers.collect {
+        removed = removed.map(serializer.encodeKey).toSeq,
+        updated = updated.iterator.map(key => key -> registers(key)).collect {
           case (key, register) if register.hasDelta =>
-            ReplicatedRegisterMapEntryDelta(Some(anySupport.encodeScala(key)), register.getDelta.register)
+            ReplicatedRegisterMapEntryDelta(Some(serializer.encodeKey(key)), register.getDelta.register)
         }.toSeq))
 
   override def resetDelta(): ReplicatedRegisterMapImpl[K, V] =
-    if (hasDelta) new ReplicatedRegisterMapImpl(anySupport, registers.view.mapValues(_.resetDelta()).toMap) else this
+    if (hasDelta)
+      new ReplicatedRegisterMapImpl(
+        serializer,
+        updated.foldLeft(registers)((map, key) => map.updated(key, map(key).resetDelta())))
+    else this
 
   override val applyDelta: PartialFunction[ReplicatedEntityDelta.Delta, ReplicatedRegisterMapImpl[K, V]] = {
     case ReplicatedEntityDelta.Delta.ReplicatedRegisterMap(ReplicatedRegisterMapDelta(cleared, removed, updated, _)) =>
       val reducedRegisters =
         if (cleared) Map.empty[K, ReplicatedRegisterImpl[V]]
-        else registers -- removed.map(key => anySupport.decode(key).asInstanceOf[K])
-      val updatedRegisters = updated.foldLeft(reducedRegisters) {
-        case (map, ReplicatedRegisterMapEntryDelta(Some(encodedKey), Some(delta), _)) =>
-          val key = anySupport.decode(encodedKey).asInstanceOf[K]
-          val register = map.getOrElse(key, new ReplicatedRegisterImpl[V](anySupport))
-          map.updated(key, register.applyDelta(ReplicatedEntityDelta.Delta.Register(delta)))
-        case (map, _) => map
+        else registers -- removed.map(key => serializer.decodeKey(key).asInstanceOf[K])
+      val updatedRegisters = InternalReplicatedData.updateEntries(reducedRegisters, updated) {
+        case (ReplicatedRegisterMapEntryDelta(Some(encodedKey), Some(delta), _), lookup) =>
+          val key = serializer.decodeKey(encodedKey).asInstanceOf[K]
+          val register = lookup(key).getOrElse(new ReplicatedRegisterImpl[V](serializer))
+          Some(key -> register.applyDelta(ReplicatedEntityDelta.Delta.Register(delta)))
+        case _ => None
       }
-      new ReplicatedRegisterMapImpl(anySupport, updatedRegisters)
+      new ReplicatedRegisterMapImpl(serializer, updatedRegisters)
   }
 
   override def toString = s"ReplicatedRegisterMap(${registers.map { case (k, v) => s"$k->$v" }.mkString(",")})"
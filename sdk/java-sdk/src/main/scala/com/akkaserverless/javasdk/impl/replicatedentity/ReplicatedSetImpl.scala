@@ -16,14 +16,13 @@
 
 package com.akkaserverless.javasdk.impl.replicatedentity
 
-import com.akkaserverless.javasdk.impl.AnySupport
 import com.akkaserverless.javasdk.replicatedentity.ReplicatedSet
 import com.akkaserverless.protocol.replicated_entity.{ ReplicatedEntityDelta, ReplicatedSetDelta }
 
 import scala.jdk.CollectionConverters._
 
 private[replicatedentity] class ReplicatedSetImpl[E](
-    anySupport: AnySupport,
+    serializer: ReplicatedDataSerializer,
     value: Set[E] = Set.empty[E],
     added: Set[E] = Set.empty[E],
     removed: Set[E] = Set.empty[E],
@@ -49,9 +48,9 @@ private[replicatedentity] class ReplicatedSetImpl[E](
       this
     } else {
       if (removed.contains(element)) {
-        new ReplicatedSetImpl(anySupport, value + element, added, removed - element, cleared)
+        new ReplicatedSetImpl(serializer, value + element, added, removed - element, cleared)
       } else {
-        new ReplicatedSetImpl(anySupport, value + element, added + element, removed, cleared)
+        new ReplicatedSetImpl(serializer, value + element, added + element, removed, cleared)
       }
     }
 
@@ -63,17 +62,23 @@ private[replicatedentity] class ReplicatedSetImpl[E](
         clear()
       } else {
         if (added.contains(element)) {
-          new ReplicatedSetImpl(anySupport, value - element, added - element, removed, cleared)
+          new ReplicatedSetImpl(serializer, value - element, added - element, removed, cleared)
         } else {
-          new ReplicatedSetImpl(anySupport, value - element, added, removed + element, cleared)
+          new ReplicatedSetImpl(serializer, value - element, added, removed + element, cleared)
         }
       }
     }
 
   override def containsAll(elements: java.util.Collection[E]): Boolean = elements.asScala.forall(value.contains)
 
-  override def addAll(elements: java.util.Collection[E]): ReplicatedSetImpl[E] =
-    elements.asScala.foldLeft(this) { case (set, element) => set.add(element) }
+  override def addAll(elements: java.util.Collection[E]): ReplicatedSetImpl[E] = {
+    val newElements = elements.asScala.iterator.filterNot(value.contains).toSet
+    if (newElements.isEmpty) this
+    else {
+      val (readded, notRemoved) = newElements.partition(removed.contains)
+      new ReplicatedSetImpl(serializer, value ++ newElements, added ++ notRemoved, removed -- readded, cleared)
+    }
+  }
 
   override def retainAll(elements: java.util.Collection[E]): ReplicatedSetImpl[E] =
     value.foldLeft(this) { case (set, element) => if (!elements.contains(element)) set.remove(element) else set }
@@ -82,7 +87,7 @@ private[replicatedentity] class ReplicatedSetImpl[E](
     elements.asScala.foldLeft(this) { case (set, element) => set.remove(element) }
 
   override def clear(): ReplicatedSetImpl[E] =
-    new ReplicatedSetImpl[E](anySupport, cleared = true)
+    new ReplicatedSetImpl[E](serializer, cleared = true)
 
   override def hasDelta: Boolean = cleared || added.nonEmpty || removed.nonEmpty
 
@@ -90,19 +95,25 @@ private[replicatedentity] class ReplicatedSetImpl[E](
     ReplicatedEntityDelta.Delta.ReplicatedSet(
       ReplicatedSetDelta(
         cleared,
-        removed = removed.map(anySupport.encodeScala).toSeq,
-        added = added.map(anySupport.encodeScala).toSeq))
+        removed = removed.map(serializer.encodeKey).toSeq,
+        added = added.map(serializer.encodeKey).toSeq))
 
   override def resetDelta(): ReplicatedSetImpl[E] =
-    if (hasDelta) new ReplicatedSetImpl(anySupport, value) else this
+    if (hasDelta) new ReplicatedSetImpl(serializer, value) else this
 
   override val applyDelta: PartialFunction[ReplicatedEntityDelta.Delta, ReplicatedSetImpl[E]] = {
     case ReplicatedEntityDelta.Delta.ReplicatedSet(ReplicatedSetDelta(cleared, removed, added, _)) =>
-      val updatedValue = {
-        (if (cleared) Set.empty[E] else value -- removed.map(element => anySupport.decode(element).asInstanceOf[E])) ++
-        added.map(element => anySupport.decode(element).asInstanceOf[E])
-      }
-      new ReplicatedSetImpl(anySupport, updatedValue)
+      val reducedValue =
+        if (cleared) Set.empty[E]
+        else value -- removed.map(element => serializer.decodeKey(element).asInstanceOf[E])
+      val updatedValue =
+        if (InternalReplicatedData.isBulkDelta(added.size, reducedValue.size)) {
+          val builder = Set.newBuilder[E]
+          builder ++= reducedValue
+          added.foreach(element => builder += serializer.decodeKey(element).asInstanceOf[E])
+          builder.result()
+        } else reducedValue ++ added.map(element => serializer.decodeKey(element).asInstanceOf[E])
+      new ReplicatedSetImpl(serializer, updatedValue)
   }
 
   override def toString = s"ReplicatedSet(${value.mkString(",")})"
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2021 Lightbend Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.akkaserverless.javasdk.impl.valueentity
+
+import com.akkaserverless.javasdk.impl.AnySupport
+import com.google.protobuf.any.{ Any => ScalaPbAny }
+
+/**
+ * The state of a value entity as it was last persisted, kept together with its encoded form.
+ */
+private[valueentity] final class PersistedState(val state: Any, val encoded: ScalaPbAny) {
+
+  /** The size of the encoded state in bytes. */
+  def size: Int = encoded.value.size
+
+  /**
+   * Whether the given state is known to be the same as the persisted state. A mutable state may have been changed in
+   * place since it was persisted, even if it's the same instance, so only immutable states are ever considered
+   * unchanged.
+   */
+  def isUnchanged(newState: Any): Boolean =
+    AnySupport.isImmutable(newState) && newState == state
+}
@@ -37,8 +37,8 @@ import com.akkaserverless.javasdk.impl.effect.ErrorReplyImpl
 import com.akkaserverless.javasdk.impl.effect.MessageReplyImpl
 import com.akkaserverless.javasdk.impl.valueentity.ValueEntityEffectImpl.DeleteState
 import com.akkaserverless.javasdk.impl.valueentity.ValueEntityEffectImpl.UpdateState
-import com.akkaserverless.javasdk.impl.valueentity.ValueEntityHandler.CommandResult
 import com.akkaserverless.javasdk.valueentity._
+import com.akkaserverless.protocol.component.ClientAction
 import com.akkaserverless.protocol.value_entity.ValueEntityAction.Action.Delete
 import com.akkaserverless.protocol.value_entity.ValueEntityAction.Action.Update
 import com.akkaserverless.protocol.value_entity.ValueEntityStreamIn.Message.{ Command => InCommand }
@@ -48,8 +48,6 @@ import com.akkaserverless.protocol.value_entity.ValueEntityStreamOut.Message.{ F
 import com.akkaserverless.protocol.value_entity.ValueEntityStreamOut.Message.{ Reply => OutReply }
 import com.akkaserverless.protocol.value_entity._
 import com.google.protobuf.Descriptors
-import com.google.protobuf.any.{ Any => ScalaPbAny }
-import com.google.protobuf.{ Any => JavaPbAny }
 
 final class ValueEntityService(
     val factory: ValueEntityFactory,
@@ -86,6 +84,7 @@ final class ValueEntitiesImpl(
     extends ValueEntities {
 
   import EntityExceptions._
+  import ValueEntitiesImpl._
 
   private implicit val ec: ExecutionContext = system.dispatcher
   private final val log = Logging(system.eventStream, this.getClass)
@@ -115,6 +114,7 @@ final class ValueEntitiesImpl(
         log.error(error, failureMessage(error))
         ValueEntityStreamOut(OutFailure(failure(error)))
       }
+      .async(UserFunctionDispatcher.Id)
 
   private def runEntity(init: ValueEntityInit): Flow[ValueEntityStreamIn, ValueEntityStreamOut, NotUsed] = {
     val service =
@@ -122,86 +122,107 @@ final class ValueEntitiesImpl(
     val handler = service.factory.create(new ValueEntityContextImpl(init.entityId))
     val thisEntityId = init.entityId
 
-    init.state match {
+    val anySupport = service.anySupport
+
+    val threshold = configuration.stateSizeWarningThreshold
+
+    def warnStateSize(state: PersistedState): Unit =
+      log.warning("State of value entity [{}] [{}] has grown to {} bytes", service.entityType, thisEntityId, state.size)
+
+    // the state as last persisted, so that updates that don't change it can be skipped
+    var persistedState: Option[PersistedState] = init.state match {
       case Some(ValueEntityInitState(stateOpt, _)) =>
-        stateOpt.map(service.anySupport.decode).foreach(handler._internalSetInitState)
+        stateOpt.map { encoded =>
+          val state = anySupport.decode(encoded)
+          handler._internalSetInitState(state)
+          val persisted = new PersistedState(state, encoded)
+          if (persisted.size > threshold) warnStateSize(persisted)
+          persisted
+        }
       case None =>
         throw new IllegalStateException("ValueEntityInitState is mandatory")
     }
 
-    Flow[ValueEntityStreamIn]
-      .map(_.message)
-      .map {
-        case InCommand(command) if thisEntityId != command.entityId =>
-          throw ProtocolException(command, "Receiving Value entity is not the intended recipient of command")
-
-        case InCommand(command) if command.payload.isEmpty =>
-          throw ProtocolException(command, "No command payload for Value entity")
-
-        case InCommand(command) =>
-          if (thisEntityId != command.entityId)
-            throw ProtocolException(command, "Receiving entity is not the intended recipient of command")
-
-          val metadata = new MetadataImpl(command.metadata.map(_.entries.toVector).getOrElse(Nil))
-          val cmd =
-            service.anySupport.decode(
-              ScalaPbAny.toJavaProto(command.payload.getOrElse(throw ProtocolException(command, "No command payload"))))
-          val context = new CommandContextImpl(thisEntityId, command.name, command.id, metadata)
-
-          val CommandResult(effect: ValueEntityEffectImpl[_]) =
-            try {
-              handler._internalHandleCommand(command.name, cmd, context)
-            } catch {
-              case e: EntityException => throw e
-              case NonFatal(error) =>
-                throw EntityException(command, s"Unexpected failure: $error", Some(error))
-            } finally {
-              context.deactivate() // Very important!
-            }
+    def persist(newState: Any): ValueEntityAction = {
+      val state = new PersistedState(newState, anySupport.encodeScala(newState))
+      // only warn when the threshold is crossed, rather than on every update of a large state
+      if (state.size > threshold && persistedState.forall(_.size <= threshold)) warnStateSize(state)
+      persistedState = Some(state)
+      ValueEntityAction(Update(ValueEntityUpdate(Some(state.encoded))))
+    }
 
-          val serializedSecondaryEffect = effect.secondaryEffect match {
-            case MessageReplyImpl(message, metadata, sideEffects) =>
-              MessageReplyImpl(service.anySupport.encodeJava(message), metadata, sideEffects)
-            case other => other
-          }
-
-          val clientAction =
-            serializedSecondaryEffect.replyToClientAction(command.id, allowNoReply = false, restartOnFailure = false)
-
-          serializedSecondaryEffect match {
-            case error: ErrorReplyImpl[_] =>
-              log.error(
-                "Fail invoked for command [{}] for entity [{}]: {}",
-                command.name,
-                thisEntityId,
-                error.description)
-              ValueEntityStreamOut(OutReply(ValueEntityReply(commandId = command.id, clientAction = clientAction)))
-
-            case _ => // non-error
-              val action: Option[ValueEntityAction] = effect.primaryEffect match {
-                case DeleteState =>
-                  Some(ValueEntityAction(Delete(ValueEntityDelete())))
-                case UpdateState(newState) =>
-                  val newStateScalaPbAny = ScalaPbAny.fromJavaProto(service.anySupport.encodeJava(newState))
-                  Some(ValueEntityAction(Update(ValueEntityUpdate(Some(newStateScalaPbAny)))))
-                case _ =>
-                  None
+    Flow[ValueEntityStreamIn]
+      .map { in =>
+        in.message match {
+          case InCommand(command) if thisEntityId != command.entityId =>
+            throw ProtocolException(command, "Receiving Value entity is not the intended recipient of command")
+
+          case InCommand(command) if command.payload.isEmpty =>
+            throw ProtocolException(command, "No command payload for Value entity")
+
+          case InCommand(command) =>
+            val cmd = anySupport.decode(command.payload.get)
+            val context =
+              new CommandContextImpl(thisEntityId, command.name, command.id, MetadataImpl.of(command.metadata))
+
+            val effect =
+              try {
+                handler._internalHandleCommand(command.name, cmd, context).effect.asInstanceOf[ValueEntityEffectImpl[_]]
+              } catch {
+                case e: EntityException => throw e
+                case NonFatal(error) =>
+                  throw EntityException(command, s"Unexpected failure: $error", Some(error))
+              } finally {
+                context.deactivate() // Very important!
               }
 
-              ValueEntityStreamOut(
-                OutReply(
-                  ValueEntityReply(
-                    command.id,
-                    clientAction,
-                    EffectSupport.sideEffectsFrom(serializedSecondaryEffect),
-                    action)))
-          }
+            effect.secondaryEffect match {
+              case error: ErrorReplyImpl[_] =>
+                log.error(
+                  "Fail invoked for command [{}] for entity [{}]: {}",
+                  command.name,
+                  thisEntityId,
+                  error.description)
+                val clientAction =
+                  error.replyToClientAction(command.id, allowNoReply = false, restartOnFailure = false)
+                ValueEntityStreamOut(OutReply(ValueEntityReply(commandId = command.id, clientAction = clientAction)))
+
+              case secondaryEffect => // non-error
+                // the reply message is encoded straight into the client action
+                val clientAction = secondaryEffect match {
+                  case reply: MessageReplyImpl[_] =>
+                    Some(ClientAction(ClientAction.Action.Reply(EffectSupport.asProtocol(reply, anySupport))))
+                  case other =>
+                    other.replyToClientAction(command.id, allowNoReply = false, restartOnFailure = false)
+                }
+
+                val action: Option[ValueEntityAction] = effect.primaryEffect match {
+                  case DeleteState =>
+                    persistedState = None
+                    DeleteAction
+                  case UpdateState(newState) if persistedState.exists(_.isUnchanged(newState)) =>
+                    None
+                  case UpdateState(newState) =>
+                    Some(persist(newState))
+                  case _ =>
+                    None
+                }
+
+                ValueEntityStreamOut(
+                  OutReply(
+                    ValueEntityReply(
+                      command.id,
+                      clientAction,
+                      EffectSupport.sideEffectsFrom(secondaryEffect),
+                      action)))
+            }
 
-        case InInit(_) =>
-          throw ProtocolException(init, "Value entity already inited")
+          case InInit(_) =>
+            throw ProtocolException(init, "Value entity already inited")
 
-        case InEmpty =>
-          throw ProtocolException(init, "Value entity received empty/unknown message")
+          case InEmpty =>
+            throw ProtocolException(init, "Value entity received empty/unknown message")
+        }
       }
   }
 
@@ -223,3 +244,7 @@ final class ValueEntitiesImpl(
       with AbstractContext
 
 }
+
+object ValueEntitiesImpl {
+  private val DeleteAction = Some(ValueEntityAction(Delete(ValueEntityDelete())))
+}
@@ -25,7 +25,7 @@ import com.akkaserverless.javasdk.impl.valueentity.ValueEntityEffectImpl.UpdateS
 import com.akkaserverless.javasdk.valueentity.ValueEntity
 
 object ValueEntityHandler {
-  final case class CommandResult(effect: ValueEntity.Effect[_])
+  final case class CommandResult(effect: ValueEntity.Effect[_]) extends AnyVal
 
   final case class CommandHandlerNotFound(commandName: String) extends RuntimeException
 
@@ -30,7 +30,6 @@ import com.akkaserverless.javasdk.view.ViewCreationContext
 import com.akkaserverless.javasdk.view.{ UpdateContext, View, ViewContext }
 import com.akkaserverless.protocol.{ view => pv }
 import com.google.protobuf.Descriptors
-import com.google.protobuf.any.{ Any => ScalaPbAny }
 import org.slf4j.LoggerFactory
 
 /** INTERNAL API */
@@ -92,11 +91,11 @@ final class ViewsImpl(system: ActorSystem, _services: Map[String, ViewService],
 
               val state: Option[Any] =
                 receiveEvent.bySubjectLookupResult.flatMap(row =>
-                  row.value.map(scalaPb => service.anySupport.decode(ScalaPbAny.toJavaProto(scalaPb))))
+                  row.value.map(scalaPb => service.anySupport.decode(scalaPb)))
 
               val commandName = receiveEvent.commandName
-              val msg = service.anySupport.decode(ScalaPbAny.toJavaProto(receiveEvent.payload.get))
-              val metadata = new MetadataImpl(receiveEvent.metadata.map(_.entries.toVector).getOrElse(Nil))
+              val msg = service.anySupport.decode(receiveEvent.payload.get)
+              val metadata = MetadataImpl.of(receiveEvent.metadata)
               val context = new UpdateContextImpl(service.viewId, commandName, metadata)
 
               val effect =
@@ -114,7 +113,7 @@ final class ViewsImpl(system: ActorSystem, _services: Map[String, ViewService],
                     throw ViewException(context, "updateState with null state is not allowed.", None)
                   val table = receiveEvent.initialTable
                   val key = receiveEvent.key
-                  val serializedState = ScalaPbAny.fromJavaProto(service.anySupport.encodeJava(newState))
+                  val serializedState = service.anySupport.encodeScala(newState)
                   val upsert = pv.Upsert(Some(pv.Row(table, key, Some(serializedState))))
                   val out = pv.ViewStreamOut(pv.ViewStreamOut.Message.Upsert(upsert))
                   Source.single(out)
@@ -142,6 +141,7 @@ final class ViewsImpl(system: ActorSystem, _services: Map[String, ViewService],
             s"Akka Serverless protocol failure: expected ReceiveEvent message, but got ${other.getClass.getName}"
           Source.failed(new RuntimeException(errMsg))
       }
+      .async(UserFunctionDispatcher.Id)
 
   trait AbstractContext extends ViewContext {
     override def serviceCallFactory(): ServiceCallFactory = rootContext.serviceCallFactory()
@@ -59,6 +59,17 @@ class AnySupportSpec extends AnyWordSpec with Matchers with OptionValues {
       decoded should ===(error)
     }
 
+    "support deserializing protobufs with a different type url prefix" in {
+      val any = anySupport.encodeScala(addLineItem).withTypeUrl(
+        "type.googleapis.com/" + ShoppingCartApi.AddLineItem.getDescriptor.getFullName)
+      anySupport.decode(any) should ===(addLineItem)
+    }
+
+    "fail deserializing unknown types" in {
+      val any = anySupport.encodeScala(addLineItem).withTypeUrl("com.example/com.example.Unknown")
+      a[SerializationException] should be thrownBy anySupport.decode(any)
+    }
+
     "support resolving a service descriptor" in {
       val methods =
         anySupport.resolveServiceDescriptor(ShoppingCartApi.getDescriptor.findServiceByName("ShoppingCartService"))
@@ -106,6 +117,16 @@ class AnySupportSpec extends AnyWordSpec with Matchers with OptionValues {
       val decoded = anySupport.decode(any)
       decoded shouldBe an[JavaPbAny]
     }
+
+    "know which decoded values are immutable" in {
+      AnySupport.isImmutable(addLineItem) shouldBe true
+      AnySupport.isImmutable(UserFunctionError("error")) shouldBe true
+      AnySupport.isImmutable("foo") shouldBe true
+      AnySupport.isImmutable(10L) shouldBe true
+      AnySupport.isImmutable(ByteString.EMPTY) shouldBe true
+      AnySupport.isImmutable(new java.util.ArrayList[String]) shouldBe false
+      AnySupport.isImmutable(null) shouldBe false
+    }
   }
 
 }
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2021 Lightbend Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.akkaserverless.javasdk.impl
+
+import com.akkaserverless.protocol.component
+import com.akkaserverless.protocol.component.MetadataEntry
+import org.scalatest.matchers.should.Matchers
+import org.scalatest.wordspec.AnyWordSpec
+
+import java.net.URI
+import java.time.ZonedDateTime
+import scala.jdk.CollectionConverters._
+
+class MetadataImplSpec extends AnyWordSpec with Matchers {
+
+  private def metadata(entries: (String, String)*) =
+    new MetadataImpl(entries.map { case (key, value) =>
+      MetadataEntry(key, MetadataEntry.Value.StringValue(value))
+    }.toVector)
+
+  "MetadataImpl" should {
+
+    "look up keys case insensitively" in {
+      val md = metadata("Foo" -> "1", "bar" -> "2", "FOO" -> "3")
+      md.has("foo") shouldBe true
+      md.get("fOO").get shouldBe "1"
+      md.getAll("foo").asScala shouldBe Seq("1", "3")
+      md.has("baz") shouldBe false
+      md.get("baz").isPresent shouldBe false
+    }
+
+    "keep lookups consistent across copies" in {
+      val md = metadata("Foo" -> "1", "bar" -> "2")
+      md.has("foo") shouldBe true // builds the index before copying
+
+      val added = md.add("FOO", "3")
+      added.getAll("foo").asScala shouldBe Seq("1", "3")
+      md.getAll("foo").asScala shouldBe Seq("1")
+
+      val set = added.set("foo", "4")
+      set.getAll("Foo").asScala shouldBe Seq("4")
+      set.getAllKeys.asScala shouldBe Seq("bar", "foo")
+
+      val removed = set.remove("FOO")
+      removed.has("foo") shouldBe false
+      removed.get("bar").get shouldBe "2"
+      set.get("foo").get shouldBe "4"
+    }
+
+    "share the entries of the protocol metadata" in {
+      val entries = Vector(MetadataEntry("foo", MetadataEntry.Value.StringValue("1")))
+      val md = MetadataImpl.of(Some(component.Metadata(entries)))
+      md.entries should be theSameInstanceAs entries
+      md.get("FOO").get shouldBe "1"
+      MetadataImpl.of(None) should be theSameInstanceAs MetadataImpl.Empty
+    }
+
+    "turn metadata into a CloudEvent" in {
+      val md = metadata("Foo" -> "1", "CE-ID" -> "old-id")
+      md.isCloudEvent shouldBe false
+
+      val ce = md.asCloudEvent("id", URI.create("/source"), "type")
+      ce.asMetadata().isCloudEvent shouldBe true
+      ce.id() shouldBe "id"
+      ce.source() shouldBe URI.create("/source")
+      ce.`type`() shouldBe "type"
+      ce.asMetadata().getAll("ce-id").asScala shouldBe Seq("id")
+      ce.asMetadata().get("foo").get shouldBe "1"
+    }
+
+    "parse the CloudEvent time once" in {
+      val time = ZonedDateTime.parse("2021-09-01T12:00:00Z")
+      val ce = metadata().asCloudEvent("id", URI.create("/source"), "type").withTime(time)
+      ce.time().get shouldBe time
+      ce.time().get should be theSameInstanceAs ce.time().get
+    }
+
+    "not copy the entries when removing a key that is not there" in {
+      val md = metadata("foo" -> "1")
+      md.remove("bar").entries should be theSameInstanceAs md.entries
+    }
+  }
+}
@@ -20,9 +20,12 @@ import akka.NotUsed
 import akka.actor.ActorSystem
 import akka.stream.javadsl.Source
 import akka.stream.scaladsl.Sink
+import com.akkaserverless.javasdk.AkkaServerlessRunner.Configuration
 import com.akkaserverless.javasdk.Context
 import com.akkaserverless.javasdk.ServiceCallFactory
+import com.akkaserverless.javasdk.SideEffect
 import com.akkaserverless.javasdk.action.Action
+import com.akkaserverless.javasdk.action.ActionOptions
 import com.akkaserverless.javasdk.action.MessageEnvelope
 import com.akkaserverless.javasdk.actionspec.ActionspecApi
 import com.akkaserverless.javasdk.impl.AnySupport
@@ -30,6 +33,7 @@ import com.akkaserverless.javasdk.impl.MetadataImpl
 import com.akkaserverless.javasdk.impl.ResolvedServiceCall
 import com.akkaserverless.javasdk.impl.ResolvedServiceCallFactory
 import com.akkaserverless.javasdk.impl.ResolvedServiceMethod
+import com.akkaserverless.javasdk.impl.VirtualThreads
 import com.akkaserverless.javasdk.impl.effect.SideEffectImpl
 import com.akkaserverless.protocol.action.ActionCommand
 import com.akkaserverless.protocol.action.ActionResponse
@@ -37,6 +41,7 @@ import com.akkaserverless.protocol.action.Actions
 import com.akkaserverless.protocol.component.Reply
 import com.google.protobuf
 import com.google.protobuf.any.{ Any => ScalaPbAny }
+import com.typesafe.config.ConfigFactory
 import org.scalatest.BeforeAndAfterAll
 import org.scalatest.Inside
 import org.scalatest.OptionValues
@@ -45,11 +50,19 @@ import org.scalatest.wordspec.AnyWordSpec
 
 import scala.concurrent.Await
 import scala.concurrent.Future
+import scala.concurrent.Promise
 import scala.concurrent.duration._
+import scala.jdk.CollectionConverters._
 
 class ActionHandlerSpec extends AnyWordSpec with Matchers with BeforeAndAfterAll with Inside with OptionValues {
 
-  private implicit val system = ActorSystem("ActionsSpec")
+  // a single user function thread, so that calls are handled one after the other, which also makes unary calls
+  // run on the user function dispatcher rather than inline
+  private implicit val system = ActorSystem(
+    "ActionsSpec",
+    ConfigFactory
+      .parseString("akkaserverless.system.user-function-dispatcher.thread-pool-executor.fixed-pool-size = 1")
+      .withFallback(ConfigFactory.load()))
 
   import system.dispatcher
 
@@ -62,18 +75,20 @@ class ActionHandlerSpec extends AnyWordSpec with Matchers with BeforeAndAfterAll
     system.terminate()
   }
 
-  def create(handler: ActionHandler[_]): Actions = {
-    val service = new ActionService(_ => handler, serviceDescriptor, anySupport)
+  def create(handler: ActionHandler[_]): Actions =
+    create(new ActionService(_ => handler, serviceDescriptor, anySupport))
 
+  def create(service: ActionService, actorSystem: ActorSystem = system): Actions = {
     val services = Map(serviceName -> service)
     val scf = new ResolvedServiceCallFactory(services)
 
     new ActionsImpl(
-      system,
+      actorSystem,
       services,
       new Context() {
         override def serviceCallFactory(): ServiceCallFactory = scf
-      })
+      },
+      new Configuration(actorSystem.settings.config.getConfig("akkaserverless")))
   }
 
   "The action service" should {
@@ -92,6 +107,112 @@ class ActionHandlerSpec extends AnyWordSpec with Matchers with BeforeAndAfterAll
       }
     }
 
+    "invoke unary commands on the user function dispatcher" in {
+      val service = create(new AbstractHandler {
+        override def handleUnary(commandName: String, message: MessageEnvelope[Any]): Action.Effect[Any] =
+          createReplyEffect(Thread.currentThread().getName)
+      })
+
+      val reply =
+        Await.result(service.handleUnary(ActionCommand(serviceName, "Unary", createInPayload("in"))), 10.seconds)
+
+      inside(reply.response) { case ActionResponse.Response.Reply(Reply(payload, _, _)) =>
+        extractOutField(payload) should include("user-function-dispatcher")
+      }
+    }
+
+    "invoke unary commands inline when the user function dispatcher isn't customized" in {
+      val defaultSystem = ActorSystem("ActionsSpecDefaults", ConfigFactory.load())
+      try {
+        val service = create(
+          new ActionService(
+            _ =>
+              new AbstractHandler {
+                override def handleUnary(commandName: String, message: MessageEnvelope[Any]): Action.Effect[Any] =
+                  createReplyEffect(Thread.currentThread().getName)
+              },
+            serviceDescriptor,
+            anySupport),
+          defaultSystem)
+
+        val reply = service.handleUnary(ActionCommand(serviceName, "Unary", createInPayload("in"))).value.get.get
+
+        inside(reply.response) { case ActionResponse.Response.Reply(Reply(payload, _, _)) =>
+          extractOutField(payload) should ===(Thread.currentThread().getName)
+        }
+      } finally defaultSystem.terminate()
+    }
+
+    "invoke unary commands of blocking actions on the blocking action dispatcher" in {
+      val service = create(
+        new ActionService(
+          _ =>
+            new AbstractHandler {
+              override def handleUnary(commandName: String, message: MessageEnvelope[Any]): Action.Effect[Any] =
+                createReplyEffect(describeThread(Thread.currentThread()))
+            },
+          serviceDescriptor,
+          anySupport,
+          ActionOptions.defaults.withBlocking(true)))
+
+      val reply =
+        Await.result(service.handleUnary(ActionCommand(serviceName, "Unary", createInPayload("in"))), 10.seconds)
+
+      inside(reply.response) { case ActionResponse.Response.Reply(Reply(payload, _, _)) =>
+        // the blocking action dispatcher runs on virtual threads where the JDK supports them, and on its own pool if not
+        if (VirtualThreads.supported) extractOutField(payload) should ===("virtual")
+        else extractOutField(payload) should include("blocking-action-dispatcher")
+      }
+    }
+
+    "reuse action instances for unary commands when enabled" in {
+      var created = 0
+      val service = create(
+        new ActionService(
+          { _ =>
+            created += 1
+            new AbstractHandler {
+              override def handleUnary(commandName: String, message: MessageEnvelope[Any]): Action.Effect[Any] =
+                createReplyEffect("out: " + extractInField(message))
+            }
+          },
+          serviceDescriptor,
+          anySupport,
+          ActionOptions.defaults.withReuseInstances(true)))
+
+      (1 to 3).foreach { idx =>
+        val command = ActionCommand(serviceName, "Unary", createInPayload(s"in $idx"))
+        val reply = Await.result(service.handleUnary(command), 10.seconds)
+        inside(reply.response) { case ActionResponse.Response.Reply(Reply(payload, _, _)) =>
+          extractOutField(payload) should ===(s"out: in $idx")
+        }
+      }
+      created shouldBe 1
+    }
+
+    "resolve streamed out effects in parallel when enabled" in {
+      val slow = Promise[Action.Effect[Any]]()
+      val handler = new AbstractHandler {
+        override def handleStreamedOut(
+            commandName: String,
+            message: MessageEnvelope[Any]): Source[Action.Effect[_], NotUsed] =
+          akka.stream.scaladsl
+            .Source(List[Action.Effect[_]](createAsyncReplyEffect(slow.future), createReplyEffect("fast")))
+            .asJava
+      }
+      val options = ActionOptions.defaults.withStreamedResponseParallelism(2).withUnorderedStreamedResponses(true)
+      val service = create(new ActionService(_ => handler, serviceDescriptor, anySupport, options))
+
+      val first = Await.result(
+        service.handleStreamedOut(ActionCommand(serviceName, "Unary", createInPayload("in"))).runWith(Sink.head),
+        10.seconds)
+
+      inside(first.response) { case ActionResponse.Response.Reply(Reply(payload, _, _)) =>
+        extractOutField(payload) should ===("fast")
+      }
+      slow.success(createReplyEffect("slow"))
+    }
+
     "invoke streamed in commands" in {
       val service = create(new AbstractHandler {
         override def handleStreamedIn(
@@ -117,6 +238,37 @@ class ActionHandlerSpec extends AnyWordSpec with Matchers with BeforeAndAfterAll
       }
     }
 
+    "invoke streamed in commands in batches when enabled" in {
+      val service = create(
+        new ActionService(
+          _ =>
+            new AbstractHandler {
+              override def handleStreamedInBatched(
+                  commandName: String,
+                  batches: Source[java.util.List[MessageEnvelope[Any]], NotUsed]): Action.Effect[Any] =
+                createAsyncReplyEffect(
+                  batches.asScala
+                    .map(batch => batch.asScala.map(extractInField).mkString("[", ", ", "]"))
+                    .runWith(Sink.seq)
+                    .map(ins => createReplyEffect("out: " + ins.mkString(", "))))
+            },
+          serviceDescriptor,
+          anySupport,
+          ActionOptions.defaults.withStreamedInBatching(2, java.time.Duration.ofSeconds(10))))
+
+      val reply = Await.result(
+        service.handleStreamedIn(
+          akka.stream.scaladsl.Source
+            .single(ActionCommand(serviceName, "StreamedIn"))
+            .concat(
+              akka.stream.scaladsl.Source(1 to 5).map(idx => ActionCommand(payload = createInPayload(s"in $idx"))))),
+        10.seconds)
+
+      inside(reply.response) { case ActionResponse.Response.Reply(Reply(payload, _, _)) =>
+        extractOutField(payload) should ===("out: [in 1, in 2], [in 3, in 4], [in 5]")
+      }
+    }
+
     "invoke streamed out commands" in {
       val service = create(new AbstractHandler {
         override def handleStreamedOut(
@@ -174,22 +326,12 @@ class ActionHandlerSpec extends AnyWordSpec with Matchers with BeforeAndAfterAll
     }
 
     "pass over side effects from an outer async effect to the inner one" in {
-      val dummyResolvedMethod = ResolvedServiceMethod(
-        serviceDescriptor.getMethods.get(0),
-        anySupport.resolveTypeDescriptor(serviceDescriptor.getMethods.get(0).getInputType),
-        anySupport.resolveTypeDescriptor(serviceDescriptor.getMethods.get(0).getOutputType))
-
       val service = create(new AbstractHandler {
 
         override def handleUnary(commandName: String, message: MessageEnvelope[Any]): Action.Effect[Any] = {
           createAsyncReplyEffect(Future {
-            createReplyEffect("reply").addSideEffect(
-              SideEffectImpl(
-                ResolvedServiceCall(dummyResolvedMethod, anySupport.encodeJava(message.payload()), MetadataImpl.Empty),
-                false))
-          }).addSideEffect(SideEffectImpl(
-            ResolvedServiceCall(dummyResolvedMethod, anySupport.encodeJava(message.payload()), MetadataImpl.Empty),
-            true))
+            createReplyEffect("reply").addSideEffect(createSideEffect(synchronous = false))
+          }).addSideEffect(createSideEffect(synchronous = true))
         }
       })
 
@@ -203,6 +345,54 @@ class ActionHandlerSpec extends AnyWordSpec with Matchers with BeforeAndAfterAll
 
     }
 
+    "reply with the effect of an async effect that has already completed" in {
+      val service = create(new AbstractHandler {
+        override def handleUnary(commandName: String, message: MessageEnvelope[Any]): Action.Effect[Any] =
+          createAsyncReplyEffect(
+            Future.successful(createReplyEffect("completed").addSideEffect(createSideEffect(synchronous = false))))
+            .addSideEffect(createSideEffect(synchronous = true))
+      })
+
+      val reply =
+        Await.result(service.handleUnary(ActionCommand(serviceName, "Unary", createInPayload("in"))), 10.seconds)
+
+      inside(reply.response) { case ActionResponse.Response.Reply(Reply(payload, _, _)) =>
+        extractOutField(payload) should ===("completed")
+      }
+      reply.sideEffects.map(_.synchronous) shouldBe Seq(false, true)
+    }
+
+    "reply with the effect of an async effect once it completes" in {
+      val pending = Promise[Action.Effect[Any]]()
+      val service = create(new AbstractHandler {
+        override def handleUnary(commandName: String, message: MessageEnvelope[Any]): Action.Effect[Any] =
+          createAsyncReplyEffect(pending.future).addSideEffect(createSideEffect(synchronous = true))
+      })
+
+      val futureReply = service.handleUnary(ActionCommand(serviceName, "Unary", createInPayload("in")))
+      futureReply.isCompleted shouldBe false
+      pending.success(createReplyEffect("pending").addSideEffect(createSideEffect(synchronous = false)))
+      val reply = Await.result(futureReply, 10.seconds)
+
+      inside(reply.response) { case ActionResponse.Response.Reply(Reply(payload, _, _)) =>
+        extractOutField(payload) should ===("pending")
+      }
+      reply.sideEffects.map(_.synchronous) shouldBe Seq(false, true)
+    }
+
+    "fail the call when an async effect has already failed" in {
+      val service = create(new AbstractHandler {
+        override def handleUnary(commandName: String, message: MessageEnvelope[Any]): Action.Effect[Any] =
+          createAsyncReplyEffect(Future.failed(new RuntimeException("boom")))
+            .addSideEffect(createSideEffect(synchronous = true))
+      })
+
+      val failure = intercept[RuntimeException] {
+        Await.result(service.handleUnary(ActionCommand(serviceName, "Unary", createInPayload("in"))), 10.seconds)
+      }
+      failure.getMessage shouldBe "boom"
+    }
+
   }
 
   private def createOutAny(field: String): Any =
@@ -214,6 +404,16 @@ class ActionHandlerSpec extends AnyWordSpec with Matchers with BeforeAndAfterAll
   private def createAsyncReplyEffect(future: Future[Action.Effect[Any]]): Action.Effect[Any] =
     ActionEffectImpl.AsyncEffect(future, Nil)
 
+  private def createSideEffect(synchronous: Boolean): SideEffect = {
+    val method = serviceDescriptor.getMethods.get(0)
+    val resolvedMethod = ResolvedServiceMethod(
+      method,
+      anySupport.resolveTypeDescriptor(method.getInputType),
+      anySupport.resolveTypeDescriptor(method.getOutputType))
+    val payload = ActionspecApi.In.newBuilder().setField("side effect").build()
+    SideEffectImpl(ResolvedServiceCall(resolvedMethod, anySupport.encodeJava(payload), MetadataImpl.Empty), synchronous)
+  }
+
   private def extractInField(message: MessageEnvelope[Any]) =
     message.payload().asInstanceOf[ActionspecApi.In].getField
 
@@ -223,6 +423,14 @@ class ActionHandlerSpec extends AnyWordSpec with Matchers with BeforeAndAfterAll
   private def extractOutField(payload: Option[ScalaPbAny]) =
     ScalaPbAny.toJavaProto(payload.value).unpack(classOf[ActionspecApi.Out]).getField
 
+  // virtual threads are unnamed, and Thread.isVirtual only exists on JDK 21 and later
+  private def describeThread(thread: Thread): String = {
+    val isVirtual =
+      try classOf[Thread].getMethod("isVirtual").invoke(thread).asInstanceOf[Boolean]
+      catch { case _: NoSuchMethodException => false }
+    if (isVirtual) "virtual" else thread.getName
+  }
+
   class TestAction extends Action
 
   private abstract class AbstractHandler extends ActionHandler[TestAction](new TestAction) {
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2021 Lightbend Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.akkaserverless.javasdk.impl.action
+
+import org.scalatest.matchers.should.Matchers
+import org.scalatest.wordspec.AnyWordSpec
+
+class HandlerPoolSpec extends AnyWordSpec with Matchers {
+
+  private class Handler
+
+  "The handler pool" should {
+    "reuse a released handler" in {
+      var created = 0
+      val pool = new HandlerPool(() => { created += 1; new Handler }, maxIdle = 2)
+      val handler = pool.borrow()
+      pool.release(handler)
+      pool.borrow() should be theSameInstanceAs handler
+      created shouldBe 1
+    }
+
+    "create a new handler while all handlers are borrowed" in {
+      val pool = new HandlerPool(() => new Handler, maxIdle = 2)
+      val first = pool.borrow()
+      val second = pool.borrow()
+      second should not be theSameInstanceAs(first)
+    }
+
+    "keep no more than the maximum number of idle handlers" in {
+      var created = 0
+      val pool = new HandlerPool(() => { created += 1; new Handler }, maxIdle = 2)
+      val handlers = List.fill(3)(pool.borrow())
+      handlers.foreach(pool.release)
+      List.fill(3)(pool.borrow())
+      created shouldBe 4
+    }
+  }
+}
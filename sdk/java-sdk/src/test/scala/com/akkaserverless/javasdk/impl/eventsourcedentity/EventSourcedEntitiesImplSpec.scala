@@ -23,6 +23,8 @@ import org.scalatest.BeforeAndAfterAll
 import org.scalatest.matchers.should.Matchers
 import org.scalatest.wordspec.AnyWordSpec
 
+import java.util.concurrent.ConcurrentLinkedQueue
+
 class EventSourcedEntitiesImplSpec extends AnyWordSpec with Matchers with BeforeAndAfterAll {
   import EventSourcedEntitiesImplSpec._
   import EventSourcedMessages._
@@ -86,6 +88,52 @@ class EventSourcedEntitiesImplSpec extends AnyWordSpec with Matchers with Before
       entity.passivate()
     }
 
+    "replay a run of events before the first command" in {
+      val entity = protocol.eventSourced.connect()
+      entity.send(init(ShoppingCart.Name, "cart"))
+      entity.send(event(1, itemAdded("abc", "apple", 1)))
+      entity.send(event(2, itemAdded("123", "banana", 4)))
+      entity.send(event(3, itemAdded("abc", "apple", 2)))
+      entity.send(command(1, "cart", "GetCart", getShoppingCart("cart")))
+      entity.expect(reply(1, cart(Item("abc", "apple", 3), Item("123", "banana", 4))))
+      entity.send(command(2, "cart", "AddItem", addItem("456", "pear", 2)))
+      entity.expect(
+        reply(
+          2,
+          EmptyJavaMessage,
+          // the replayed events moved the sequence number to 3, so the new event is the 4th and gets a snapshot
+          persist(itemAdded("456", "pear", 2))
+            .withSnapshot(cartSnapshot(Item("abc", "apple", 3), Item("123", "banana", 4), Item("456", "pear", 2)))))
+      entity.passivate()
+    }
+
+    "reuse the decoded snapshot when reactivated from the same snapshot" in {
+      val cachingService = ShoppingCart.recordingService(EventSourcedEntityOptions.defaults().withSnapshotCacheSize(10))
+      val cachingProtocol = TestProtocol(cachingService.port)
+      try {
+        val first = ShoppingCart.activateFromSnapshot(cachingProtocol, 3)
+        ShoppingCart.activateFromSnapshot(cachingProtocol, 3) should be theSameInstanceAs first
+        val later = ShoppingCart.activateFromSnapshot(cachingProtocol, 5)
+        later should not be theSameInstanceAs(first)
+        later shouldBe first
+      } finally {
+        cachingProtocol.terminate()
+        cachingService.terminate()
+      }
+    }
+
+    "decode the snapshot on every reactivation without a snapshot cache" in {
+      val uncachedService = ShoppingCart.recordingService(EventSourcedEntityOptions.defaults())
+      val uncachedProtocol = TestProtocol(uncachedService.port)
+      try {
+        val first = ShoppingCart.activateFromSnapshot(uncachedProtocol, 3)
+        ShoppingCart.activateFromSnapshot(uncachedProtocol, 3) should not be theSameInstanceAs(first)
+      } finally {
+        uncachedProtocol.terminate()
+        uncachedService.terminate()
+      }
+    }
+
     "fail when first message is not init" in {
       service.expectLogError("Terminating entity due to unexpected failure") {
         val entity = protocol.eventSourced.connect()
@@ -218,6 +266,33 @@ object EventSourcedEntitiesImplSpec {
 
     case class Item(id: String, name: String, quantity: Int)
 
+    /** A cart that keeps the state it was asked for with GetCart, to tell which state instance an activation got. */
+    class RecordingCartEntity(states: ConcurrentLinkedQueue[ShoppingCartDomain.Cart]) extends CartEntity(null) {
+      override def getCart(
+          currentState: ShoppingCartDomain.Cart,
+          command: ShoppingCartApi.GetShoppingCart): EventSourcedEntity.Effect[ShoppingCartApi.Cart] = {
+        states.add(currentState)
+        super.getCart(currentState, command)
+      }
+    }
+
+    private val recordedStates = new ConcurrentLinkedQueue[ShoppingCartDomain.Cart]
+
+    def recordingService(options: EventSourcedEntityOptions): TestEventSourcedService =
+      TestEventSourced.service(CartEntityProvider.of(_ => new RecordingCartEntity(recordedStates)).withOptions(options))
+
+    /** Activates the cart from a snapshot at the given sequence number, and returns the state that it got. */
+    def activateFromSnapshot(protocol: TestProtocol, sequence: Long): ShoppingCartDomain.Cart = {
+      import EventSourcedMessages._
+      import Protocol._
+      val entity = protocol.eventSourced.connect()
+      entity.send(init(Name, "cart", snapshot(sequence, cartSnapshot(Item("abc", "apple", 3)))))
+      entity.send(command(1, "cart", "GetCart", getShoppingCart("cart")))
+      entity.expect(reply(1, cart(Item("abc", "apple", 3))))
+      entity.passivate()
+      recordedStates.poll()
+    }
+
     object Protocol {
       import scala.jdk.CollectionConverters._
 
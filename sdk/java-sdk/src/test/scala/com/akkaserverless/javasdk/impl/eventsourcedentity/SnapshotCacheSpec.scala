@@ -0,0 +1,86 @@
+/*
+ * Copyright 2021 Lightbend Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.akkaserverless.javasdk.impl.eventsourcedentity
+
+import com.akkaserverless.javasdk.impl.AnySupport
+import com.google.protobuf.ByteString
+import com.google.protobuf.any.{ Any => ScalaPbAny }
+import org.scalatest.matchers.should.Matchers
+import org.scalatest.wordspec.AnyWordSpec
+
+class SnapshotCacheSpec extends AnyWordSpec with Matchers {
+
+  private val anySupport = new AnySupport(Array.empty, getClass.getClassLoader)
+
+  private def countingDecoder(): (ScalaPbAny => Any, () => Int) = {
+    var decoded = 0
+    val decode = (any: ScalaPbAny) => {
+      decoded += 1
+      anySupport.decode(any)
+    }
+    (decode, () => decoded)
+  }
+
+  "SnapshotCache" should {
+
+    "only decode the same snapshot once" in {
+      val cache = new SnapshotCache(10)
+      val (decode, decoded) = countingDecoder()
+      val snapshot = anySupport.encodeScala("state")
+      val state = cache.getOrDecode("entity", 5, snapshot)(decode)
+      state shouldBe "state"
+      cache.getOrDecode("entity", 5, snapshot)(decode) should be theSameInstanceAs state
+      decoded() shouldBe 1
+      cache.getOrDecode("entity", 6, snapshot)(decode)
+      cache.getOrDecode("other", 5, snapshot)(decode)
+      decoded() shouldBe 3
+    }
+
+    "evict the least recently used snapshots" in {
+      val cache = new SnapshotCache(2)
+      val (decode, decoded) = countingDecoder()
+      val snapshot = anySupport.encodeScala("state")
+      cache.getOrDecode("a", 1, snapshot)(decode)
+      cache.getOrDecode("b", 1, snapshot)(decode)
+      cache.getOrDecode("a", 1, snapshot)(decode)
+      cache.getOrDecode("c", 1, snapshot)(decode)
+      decoded() shouldBe 3
+      cache.getOrDecode("a", 1, snapshot)(decode)
+      decoded() shouldBe 3
+      cache.getOrDecode("b", 1, snapshot)(decode)
+      decoded() shouldBe 4
+    }
+
+    "cache bytes states" in {
+      val cache = new SnapshotCache(10)
+      val (decode, decoded) = countingDecoder()
+      val snapshot = anySupport.encodeScala(ByteString.copyFromUtf8("state"))
+      val state = cache.getOrDecode("entity", 1, snapshot)(decode)
+      state shouldBe a[ByteString]
+      cache.getOrDecode("entity", 1, snapshot)(decode) should be theSameInstanceAs state
+      decoded() shouldBe 1
+    }
+
+    "not cache states that may be mutable" in {
+      val cache = new SnapshotCache(10)
+      val snapshot = anySupport.encodeScala("state")
+      val decode = (_: ScalaPbAny) => new java.util.ArrayList[String]()
+      val state = cache.getOrDecode("entity", 1, snapshot)(decode)
+      cache.getOrDecode("entity", 1, snapshot)(decode) should not be theSameInstanceAs(state)
+    }
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2021 Lightbend Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.akkaserverless.javasdk.impl.replicatedentity
+
+import com.akkaserverless.protocol.replicated_entity.{
+  ReplicatedCounterDelta,
+  ReplicatedEntityDelta,
+  ReplicatedSetDelta
+}
+import org.scalatest.matchers.should.Matchers
+import org.scalatest.wordspec.AnyWordSpec
+
+import scala.jdk.CollectionConverters._
+
+class InternalReplicatedDataSpec extends AnyWordSpec with Matchers {
+
+  private val serializer = TestReplicatedEntity.serializer()
+
+  private def counterDelta(increment: Long): ReplicatedEntityDelta.Delta =
+    ReplicatedEntityDelta.Delta.Counter(ReplicatedCounterDelta(increment))
+
+  private def setDelta(
+      cleared: Boolean = false,
+      removed: Seq[String] = Nil,
+      added: Seq[String] = Nil): ReplicatedEntityDelta.Delta =
+    ReplicatedEntityDelta.Delta.ReplicatedSet(
+      ReplicatedSetDelta(cleared, removed.map(serializer.encodeKey), added.map(serializer.encodeKey)))
+
+  private def merged(deltas: Seq[ReplicatedEntityDelta.Delta]): ReplicatedEntityDelta.Delta =
+    deltas.reduce((earlier, later) => InternalReplicatedData.mergeDeltas(earlier, later).get)
+
+  "InternalReplicatedData" should {
+
+    "merge counter deltas into the same state as applying them one by one" in {
+      val deltas = Seq(counterDelta(3), counterDelta(-5), counterDelta(10))
+      val counter = new ReplicatedCounterImpl(7)
+      val oneByOne = deltas.foldLeft(counter)((current, delta) => current.applyDelta(delta))
+      counter.applyDelta(merged(deltas)).getValue shouldBe oneByOne.getValue
+      oneByOne.getValue shouldBe 15
+    }
+
+    "merge set deltas into the same state as applying them one by one" in {
+      val deltas = Seq(
+        setDelta(added = Seq("a", "b")),
+        setDelta(removed = Seq("a", "x"), added = Seq("c")),
+        setDelta(removed = Seq("c"), added = Seq("a")),
+        setDelta(cleared = true, added = Seq("d")),
+        setDelta(removed = Seq("d"), added = Seq("e", "x")))
+      val set = new ReplicatedSetImpl[String](serializer, Set("x", "y"))
+      (1 to deltas.size).foreach { n =>
+        val run = deltas.take(n)
+        val oneByOne = run.foldLeft(set)((current, delta) => current.applyDelta(delta))
+        withClue(s"after $n deltas: ") {
+          set.applyDelta(merged(run)).elements.asScala shouldBe oneByOne.elements.asScala
+        }
+      }
+    }
+
+    "not merge deltas of other types" in {
+      InternalReplicatedData.mergeDeltas(counterDelta(1), setDelta(added = Seq("a"))) shouldBe None
+      InternalReplicatedData.mergeDeltas(ReplicatedEntityDelta.Delta.Empty, counterDelta(1)) shouldBe None
+    }
+  }
+}
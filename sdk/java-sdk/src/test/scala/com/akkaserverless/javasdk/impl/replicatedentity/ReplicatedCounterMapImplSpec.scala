@@ -0,0 +1,83 @@
+/*
+ * Copyright 2021 Lightbend Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.akkaserverless.javasdk.impl.replicatedentity
+
+import com.akkaserverless.protocol.replicated_entity.{
+  ReplicatedCounterDelta,
+  ReplicatedCounterMapDelta,
+  ReplicatedCounterMapEntryDelta,
+  ReplicatedEntityDelta
+}
+import org.scalatest.matchers.should.Matchers
+import org.scalatest.wordspec.AnyWordSpec
+
+class ReplicatedCounterMapImplSpec extends AnyWordSpec with Matchers {
+  import TestReplicatedEntity.{ anySupport, replicated }
+
+  private val serializer = TestReplicatedEntity.serializer()
+
+  private def counterMap(entries: (String, Long)*): ReplicatedCounterMapImpl[String] =
+    replicated(new ReplicatedCounterMapImpl[String](serializer))(entries) { case (map, (key, value)) =>
+      map.increment(key, value)
+    }
+
+  "ReplicatedCounterMapImpl" should {
+
+    "only include the incremented counters in the delta" in {
+      val map = counterMap("a" -> 1, "b" -> 2, "c" -> 3).increment("b", 5).decrement("c", 1)
+      map.hasDelta shouldBe true
+      val delta = map.getDelta.replicatedCounterMap.get
+      delta.updated.map(entry => anySupport.decode(entry.key.get) -> entry.delta.get).toMap shouldBe Map(
+        "b" -> ReplicatedCounterDelta(5),
+        "c" -> ReplicatedCounterDelta(-1))
+    }
+
+    "reset the delta of incremented counters" in {
+      val map = counterMap("a" -> 1, "b" -> 2).increment("b", 5).resetDelta()
+      map.hasDelta shouldBe false
+      map.get("a") shouldBe 1
+      map.get("b") shouldBe 7
+    }
+
+    "not have a delta when increments cancel out" in {
+      counterMap("a" -> 1).increment("a", 2).decrement("a", 2).hasDelta shouldBe false
+    }
+
+    "forget incremented counters that are removed" in {
+      val map = counterMap("a" -> 1, "b" -> 2).increment("b", 5).remove("b")
+      val delta = map.getDelta.replicatedCounterMap.get
+      delta.updated shouldBe empty
+      delta.removed.map(key => anySupport.decode(key)) shouldBe Seq("b")
+    }
+
+    "apply large deltas with repeated keys" in {
+      val updates = (1 to 100).map { i =>
+        ReplicatedCounterMapEntryDelta(Some(serializer.encodeKey(s"k${i % 10}")), Some(ReplicatedCounterDelta(i)))
+      }
+      val delta = ReplicatedEntityDelta.Delta.ReplicatedCounterMap(ReplicatedCounterMapDelta(updated = updates))
+      val expected = (1 to 100).groupMapReduce(i => s"k${i % 10}")(_.toLong)(_ + _)
+
+      val created = new ReplicatedCounterMapImpl[String](serializer).applyDelta(delta)
+      expected.foreach { case (key, value) => created.get(key) shouldBe value }
+
+      val updated = counterMap("k1" -> 1000, "other" -> 1).applyDelta(delta)
+      updated.get("k1") shouldBe expected("k1") + 1000
+      updated.get("other") shouldBe 1
+      updated.size shouldBe 11
+    }
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2021 Lightbend Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.akkaserverless.javasdk.impl.replicatedentity
+
+import com.akkaserverless.javasdk.replicatedentity.ReplicatedRegister
+import com.akkaserverless.protocol.replicated_entity.ReplicatedEntityDelta
+import org.scalatest.matchers.should.Matchers
+import org.scalatest.wordspec.AnyWordSpec
+
+class ReplicatedDataSerializerSpec extends AnyWordSpec with Matchers {
+
+  import TestReplicatedEntity.anySupport
+
+  "ReplicatedDataSerializer" should {
+
+    "reuse the encoding of keys" in {
+      val serializer = new ReplicatedDataSerializer(anySupport)
+      val encoded = serializer.encodeKey("foo")
+      encoded shouldBe anySupport.encodeScala("foo")
+      serializer.encodeKey("foo") should be theSameInstanceAs encoded
+    }
+
+    "decode keys it has encoded without parsing them again" in {
+      val serializer = new ReplicatedDataSerializer(anySupport)
+      val key = new String("foo")
+      val encoded = serializer.encodeKey(key)
+      serializer.decodeKey(anySupport.encodeScala("foo")) should be theSameInstanceAs key
+      serializer.decodeKey(encoded) should be theSameInstanceAs key
+    }
+
+    "evict the least recently used keys" in {
+      val serializer = new ReplicatedDataSerializer(anySupport, maxCachedKeys = 2)
+      val first = serializer.encodeKey("a")
+      val second = serializer.encodeKey("b")
+      serializer.encodeKey("a")
+      serializer.encodeKey("c")
+      serializer.encodeKey("a") should be theSameInstanceAs first
+      serializer.encodeKey("b") should not be theSameInstanceAs(second)
+    }
+
+    "decode large initial data in parallel with the same result" in {
+      val empty = new ReplicatedRegisterMapImpl[String, String](new ReplicatedDataSerializer(anySupport))
+      val source = (1 to 1000).foldLeft(empty) { (map, i) =>
+        map.setValue(s"k$i", s"v${i % 10}", ReplicatedRegister.Clock.DEFAULT, 0)
+      }
+      val delta = ReplicatedEntityDelta(source.getDelta)
+
+      def create(serializer: ReplicatedDataSerializer): ReplicatedRegisterMapImpl[String, String] =
+        ReplicatedEntityDeltaTransformer
+          .create(delta, serializer)
+          .asInstanceOf[ReplicatedRegisterMapImpl[String, String]]
+
+      val sequential = create(new ReplicatedDataSerializer(anySupport))
+      val parallel = create(new ReplicatedDataSerializer(anySupport, parallelDecodingThreshold = 100))
+      parallel.keySet shouldBe sequential.keySet
+      (1 to 1000).foreach { i =>
+        parallel.getValue(s"k$i") shouldBe sequential.getValue(s"k$i")
+      }
+      // values with the same encoding are decoded once, and immutable values are shared
+      parallel.getValue("k1").get should be theSameInstanceAs parallel.getValue("k11").get
+    }
+  }
+}
@@ -18,6 +18,7 @@ package com.akkaserverless.javasdk.impl.replicatedentity
 
 import com.akkaserverless.javasdk.replicatedentity.CartEntity
 import com.akkaserverless.javasdk.replicatedentity.CartEntityProvider
+import com.akkaserverless.javasdk.replicatedentity.ReplicatedEntityOptions
 import com.akkaserverless.protocol.replicated_entity.ReplicatedEntityDelta
 import com.akkaserverless.testkit.TestProtocol
 import com.akkaserverless.testkit.replicatedentity.ReplicatedEntityMessages
@@ -82,6 +83,28 @@ class ReplicatedEntitiesImplSpec extends AnyWordSpec with Matchers with BeforeAn
         .passivate()
     }
 
+    "apply coalesced deltas before the next command" in {
+      val coalescingService = ShoppingCart.testService(ReplicatedEntityOptions.defaults.withMaxCoalescedDeltas(10))
+      val coalescingProtocol = TestProtocol(coalescingService.port)
+      try {
+        coalescingProtocol.replicatedEntity
+          .connect()
+          .send(init(ShoppingCart.Name, "cart"))
+          .send(delta(update(domainLineItem("a", "apple", 1))))
+          .send(delta(update(domainLineItem("b", "banana", 2))))
+          .send(delta(remove("a")))
+          .send(command(1, "cart", "GetCart", getShoppingCart("cart")))
+          .expect(reply(1, cart(Item("b", "banana", 2))))
+          .send(delta(update(domainLineItem("b", "banana", 3))))
+          .send(command(2, "cart", "AddItem", addItem("b", "banana", 1)))
+          .expect(reply(2, EmptyJavaMessage, updated(domainLineItem("b", "banana", 4))))
+          .passivate()
+      } finally {
+        coalescingProtocol.terminate()
+        coalescingService.terminate()
+      }
+    }
+
     "manage entities with expected delete commands" in {
       protocol.replicatedEntity
         .connect()
@@ -173,6 +196,27 @@ class ReplicatedEntitiesImplSpec extends AnyWordSpec with Matchers with BeforeAn
       }
     }
 
+    "fail as soon as a delta doesn't match replicated data type when deltas are coalesced" in {
+      val coalescingService = ShoppingCart.testService(ReplicatedEntityOptions.defaults.withMaxCoalescedDeltas(10))
+      val coalescingProtocol = TestProtocol(coalescingService.port)
+      try {
+        coalescingService.expectLogError("Terminating entity [cart] due to unexpected failure") {
+          coalescingProtocol.replicatedEntity
+            .connect()
+            .send(init(ShoppingCart.Name, "cart"))
+            .send(delta(deltaCounter(42)))
+            .expect(entityFailure(
+              "Protocol error: Received delta class " +
+              "com.akkaserverless.protocol.replicated_entity.ReplicatedCounterDelta" +
+              " which doesn't match the expected replicated data type: ReplicatedRegisterMap"))
+            .expectClosed()
+        }
+      } finally {
+        coalescingProtocol.terminate()
+        coalescingService.terminate()
+      }
+    }
+
     "fail when command handler does not exist" in {
       service.expectLogError("Terminating entity [cart] due to unexpected failure for command [foo]") {
         protocol.replicatedEntity
@@ -226,10 +270,13 @@ object ReplicatedEntitiesImplSpec {
 
     val Name: String = ShoppingCartApi.getDescriptor.findServiceByName("ShoppingCartService").getFullName
 
-    def testService: TestReplicatedService =
+    def testService: TestReplicatedService = testService(ReplicatedEntityOptions.defaults)
+
+    def testService(options: ReplicatedEntityOptions): TestReplicatedService =
       TestReplicatedEntity.service(
         CartEntityProvider
-          .of(new CartEntity(_)))
+          .of(new CartEntity(_))
+          .withOptions(options))
 
     case class Item(id: String, name: String, quantity: Int)
 
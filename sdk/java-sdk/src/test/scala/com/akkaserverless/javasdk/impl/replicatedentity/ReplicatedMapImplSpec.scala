@@ -0,0 +1,67 @@
+/*
+ * Copyright 2021 Lightbend Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.akkaserverless.javasdk.impl.replicatedentity
+
+import com.akkaserverless.protocol.replicated_entity.{ ReplicatedCounterDelta, ReplicatedEntityDelta }
+import org.scalatest.matchers.should.Matchers
+import org.scalatest.wordspec.AnyWordSpec
+
+class ReplicatedMapImplSpec extends AnyWordSpec with Matchers {
+  import TestReplicatedEntity.{ anySupport, replicated }
+
+  private val serializer = TestReplicatedEntity.serializer()
+
+  private def counters(entries: (String, Long)*): ReplicatedMapImpl[String, ReplicatedCounterImpl] =
+    replicated(new ReplicatedMapImpl[String, ReplicatedCounterImpl](serializer))(entries) { case (map, (key, value)) =>
+      map.update(key, new ReplicatedCounterImpl().increment(value))
+    }
+
+  private def increment(map: ReplicatedMapImpl[String, ReplicatedCounterImpl], key: String, amount: Long) =
+    map.update(key, map.get(key).increment(amount))
+
+  "ReplicatedMapImpl" should {
+
+    "only include the updated entries in the delta" in {
+      val map = increment(counters("a" -> 1, "b" -> 2, "c" -> 3), "b", 5)
+      map.hasDelta shouldBe true
+      val delta = map.getDelta.replicatedMap.get
+      delta.added shouldBe empty
+      delta.removed shouldBe empty
+      delta.updated.map(entry => anySupport.decode(entry.key.get)) shouldBe Seq("b")
+      delta.updated.head.delta.get.delta shouldBe ReplicatedEntityDelta.Delta.Counter(ReplicatedCounterDelta(5))
+    }
+
+    "reset the delta of updated entries" in {
+      val map = increment(counters("a" -> 1, "b" -> 2), "b", 5).resetDelta()
+      map.hasDelta shouldBe false
+      map.get("b").getValue shouldBe 7
+      map.get("b").hasDelta shouldBe false
+    }
+
+    "not have a delta when an updated value has no delta" in {
+      val map = counters("a" -> 1)
+      map.update("a", map.get("a")).hasDelta shouldBe false
+    }
+
+    "forget updated entries that are removed" in {
+      val map = increment(counters("a" -> 1, "b" -> 2), "b", 5).remove("b")
+      val delta = map.getDelta.replicatedMap.get
+      delta.updated shouldBe empty
+      delta.removed.map(key => anySupport.decode(key)) shouldBe Seq("b")
+    }
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2021 Lightbend Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.akkaserverless.javasdk.impl.replicatedentity
+
+import org.scalatest.matchers.should.Matchers
+import org.scalatest.wordspec.AnyWordSpec
+
+import scala.jdk.CollectionConverters._
+
+class ReplicatedMultiMapImplSpec extends AnyWordSpec with Matchers {
+  import TestReplicatedEntity.anySupport
+
+  private val serializer = TestReplicatedEntity.serializer()
+
+  "ReplicatedMultiMapImpl" should {
+
+    "keep track of the total number of values" in {
+      val map = new ReplicatedMultiMapImpl[String, String](serializer)
+        .put("a", "1")
+        .put("a", "1")
+        .putAll("b", Seq("1", "2", "3", "2").asJava)
+        .put("c", "1")
+      map.size shouldBe 5
+      map.remove("b", "2").size shouldBe 4
+      map.remove("b", "4").size shouldBe 5
+      map.removeAll("b").size shouldBe 2
+      map.clear().size shouldBe 0
+    }
+
+    "keep track of the total number of values when applying deltas" in {
+      val source = new ReplicatedMultiMapImpl[String, String](serializer)
+        .putAll("a", Seq("1", "2").asJava)
+        .putAll("b", Seq("1", "2", "3").asJava)
+      val map = new ReplicatedMultiMapImpl[String, String](serializer).applyDelta(source.getDelta)
+      map.size shouldBe 5
+
+      val changed = map.removeAll("a").put("b", "4").put("c", "1")
+      val updated = map.applyDelta(changed.getDelta)
+      updated.size shouldBe 5
+      updated.get("b").asScala shouldBe Set("1", "2", "3", "4")
+    }
+
+    "put all values in one go" in {
+      val map = new ReplicatedMultiMapImpl[String, String](serializer).putAll("a", Seq("1", "2").asJava).resetDelta()
+      val updated = map.putAll("a", Seq("2", "3").asJava)
+      updated.get("a").asScala shouldBe Set("1", "2", "3")
+      val added = updated.getDelta.replicatedMultiMap.get.updated.flatMap(_.delta.get.added)
+      added.map(value => anySupport.decode(value)) shouldBe Seq("3")
+      map.putAll("a", Seq("1").asJava) should be theSameInstanceAs map
+    }
+
+    "keep track of the total number of values when applying large deltas" in {
+      val source = (1 to 50).foldLeft(new ReplicatedMultiMapImpl[String, String](serializer)) { (map, i) =>
+        map.putAll(s"k$i", Seq("1", "2", "3").asJava)
+      }
+      val created = new ReplicatedMultiMapImpl[String, String](serializer).applyDelta(source.getDelta)
+      created.size shouldBe 150
+      created.keySet.size shouldBe 50
+
+      val existing = new ReplicatedMultiMapImpl[String, String](serializer)
+        .putAll("k1", Seq("4", "5").asJava)
+        .put("other", "1")
+        .resetDelta()
+      val updated = existing.applyDelta(source.getDelta)
+      updated.size shouldBe 153
+      updated.get("k1").asScala shouldBe Set("1", "2", "3", "4", "5")
+    }
+  }
+}
@@ -20,6 +20,7 @@ import akka.testkit.EventFilter
 import akka.testkit.SocketUtil
 import com.akkaserverless.javasdk.AkkaServerless
 import com.akkaserverless.javasdk.AkkaServerlessRunner
+import com.akkaserverless.javasdk.impl.AnySupport
 import com.akkaserverless.javasdk.replicatedentity.ReplicatedEntityProvider
 import com.typesafe.config.Config
 import com.typesafe.config.ConfigFactory
@@ -27,6 +28,15 @@ import com.typesafe.config.ConfigFactory
 object TestReplicatedEntity {
   def service(entityProvider: ReplicatedEntityProvider[_, _]): TestReplicatedService =
     new TestReplicatedService(entityProvider)
+
+  /** For unit tests of the replicated data types, which use primitive keys and values. */
+  val anySupport: AnySupport = new AnySupport(Array.empty, getClass.getClassLoader)
+
+  def serializer(): ReplicatedDataSerializer = new ReplicatedDataSerializer(anySupport)
+
+  /** Replicated data with the given entries added and no delta, as if it had been replicated from elsewhere. */
+  def replicated[D <: InternalReplicatedData { type Self = D }, E](empty: D)(entries: Seq[E])(add: (D, E) => D): D =
+    entries.foldLeft(empty)(add).resetDelta()
 }
 
 class TestReplicatedService(entityProvider: ReplicatedEntityProvider[_, _]) {
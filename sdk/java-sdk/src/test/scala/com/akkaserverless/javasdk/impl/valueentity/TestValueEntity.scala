@@ -27,9 +27,12 @@ import com.typesafe.config.ConfigFactory
 object TestValueEntity {
   def service(entityProvider: ValueEntityProvider[_, _]): TestValueService =
     new TestValueService(entityProvider)
+
+  def service(entityProvider: ValueEntityProvider[_, _], additionalConfig: String): TestValueService =
+    new TestValueService(entityProvider, additionalConfig)
 }
 
-class TestValueService(entityProvider: ValueEntityProvider[_, _]) {
+class TestValueService(entityProvider: ValueEntityProvider[_, _], additionalConfig: String = "") {
   val port: Int = SocketUtil.temporaryLocalPort()
 
   val config: Config = ConfigFactory.load(ConfigFactory.parseString(s"""
@@ -40,6 +43,7 @@ class TestValueService(entityProvider: ValueEntityProvider[_, _]) {
         loggers = ["akka.testkit.TestEventListener"]
         coordinated-shutdown.exit-jvm = off
       }
+      $additionalConfig
     }
   """))
 
@@ -52,5 +56,8 @@ class TestValueService(entityProvider: ValueEntityProvider[_, _]) {
   def expectLogError[T](message: String)(block: => T): T =
     EventFilter.error(message, occurrences = 1).intercept(block)(runner.system)
 
+  def expectLogWarning[T](messageStart: String)(block: => T): T =
+    EventFilter.warning(start = messageStart, occurrences = 1).intercept(block)(runner.system)
+
   def terminate(): Unit = runner.terminate()
 }
@@ -16,8 +16,15 @@
 
 package com.akkaserverless.javasdk.impl.valueentity
 
+import com.akkaserverless.javasdk.JsonSupport
+import com.akkaserverless.javasdk.MyJsonable
 import com.akkaserverless.javasdk.valueentity.CartEntity
 import com.akkaserverless.javasdk.valueentity.CartEntityProvider
+import com.akkaserverless.javasdk.valueentity.CommandContext
+import com.akkaserverless.javasdk.valueentity.ValueEntity
+import com.akkaserverless.javasdk.valueentity.ValueEntityContext
+import com.akkaserverless.javasdk.valueentity.ValueEntityOptions
+import com.akkaserverless.javasdk.valueentity.ValueEntityProvider
 import com.akkaserverless.testkit.TestProtocol
 import com.akkaserverless.testkit.valueentity.ValueEntityMessages
 import org.scalatest.BeforeAndAfterAll
@@ -33,9 +40,14 @@ class ValueEntitiesImplSpec extends AnyWordSpec with Matchers with BeforeAndAfte
   private val service: TestValueService = ShoppingCart.testService
   private val protocol: TestProtocol = TestProtocol(service.port)
 
+  private val registerService: TestValueService = Register.testService
+  private val registerProtocol: TestProtocol = TestProtocol(registerService.port)
+
   override def afterAll(): Unit = {
     protocol.terminate()
     service.terminate()
+    registerProtocol.terminate()
+    registerService.terminate()
   }
 
   "EntityImpl" should {
@@ -179,6 +191,110 @@ class ValueEntitiesImplSpec extends AnyWordSpec with Matchers with BeforeAndAfte
       entity.expect(reply(5, EmptyCart))
       entity.passivate()
     }
+
+    "not send updates to an equal state" in {
+      val entity = registerProtocol.valueEntity.connect()
+      entity.send(init(ShoppingCart.Name, "register"))
+      entity.send(command(1, "register", "AddItem", addItem("abc", "apple", 1)))
+      entity.expect(reply(1, EmptyJavaMessage, update(domainCart(Item("abc", "apple", 1)))))
+      entity.send(command(2, "register", "AddItem", addItem("abc", "apple", 1)))
+      entity.expect(reply(2, EmptyJavaMessage))
+      entity.send(command(3, "register", "AddItem", addItem("abc", "apple", 2)))
+      entity.expect(reply(3, EmptyJavaMessage, update(domainCart(Item("abc", "apple", 2)))))
+      entity.passivate()
+    }
+
+    "not send an update that equals the initial state" in {
+      val entity = registerProtocol.valueEntity.connect()
+      entity.send(init(ShoppingCart.Name, "register", state(domainCart(Item("abc", "apple", 1)))))
+      entity.send(command(1, "register", "AddItem", addItem("abc", "apple", 1)))
+      entity.expect(reply(1, EmptyJavaMessage))
+      entity.passivate()
+    }
+
+    "send the first update after a delete" in {
+      val entity = registerProtocol.valueEntity.connect()
+      entity.send(init(ShoppingCart.Name, "register"))
+      entity.send(command(1, "register", "AddItem", addItem("abc", "apple", 1)))
+      entity.expect(reply(1, EmptyJavaMessage, update(domainCart(Item("abc", "apple", 1)))))
+      entity.send(command(2, "register", "RemoveCart", removeCart("register")))
+      entity.expect(reply(2, EmptyJavaMessage, delete()))
+      entity.send(command(3, "register", "AddItem", addItem("abc", "apple", 1)))
+      entity.expect(reply(3, EmptyJavaMessage, update(domainCart(Item("abc", "apple", 1)))))
+      entity.passivate()
+    }
+
+    // states are always protobuf messages, Anys or primitives, so a JSON state is an Any that the entity encodes from
+    // its own object, here one object that it changes in place and encodes again for every update
+    "send every change of a JSON state encoded from an object changed in place" in {
+      val entity = registerProtocol.valueEntity.connect()
+      entity.send(init(ShoppingCart.Name, "register"))
+      entity.send(command(1, "register", "AddItem", addItem("abc", Register.Json, 1)))
+      entity.expect(reply(1, EmptyJavaMessage, update(Register.json("abc"))))
+      entity.send(command(2, "register", "AddItem", addItem("def", Register.Json, 1)))
+      entity.expect(reply(2, EmptyJavaMessage, update(Register.json("def"))))
+      entity.send(command(3, "register", "AddItem", addItem("abc", Register.Json, 1)))
+      entity.expect(reply(3, EmptyJavaMessage, update(Register.json("abc"))))
+      entity.send(command(4, "register", "AddItem", addItem("abc", Register.Json, 1)))
+      entity.expect(reply(4, EmptyJavaMessage))
+      entity.passivate()
+    }
+
+    "warn once when the state grows beyond the size warning threshold" in {
+      val thresholdService = Register.testService("value-entity.state-size-warning-threshold = 200 B")
+      val thresholdProtocol = TestProtocol(thresholdService.port)
+      val large = "a" * 300
+      val larger = "b" * 400
+      try {
+        val entity = thresholdProtocol.valueEntity.connect()
+        entity.send(init(ShoppingCart.Name, "register"))
+        entity.send(command(1, "register", "AddItem", addItem("abc", "apple", 1)))
+        entity.expect(reply(1, EmptyJavaMessage, update(domainCart(Item("abc", "apple", 1)))))
+        thresholdService.expectLogWarning("State of value entity [register] [register] has grown to") {
+          entity.send(command(2, "register", "AddItem", addItem(large, "apple", 1)))
+          entity.expect(reply(2, EmptyJavaMessage, update(domainCart(Item(large, "apple", 1)))))
+          entity.send(command(3, "register", "AddItem", addItem(larger, "apple", 1)))
+          entity.expect(reply(3, EmptyJavaMessage, update(domainCart(Item(larger, "apple", 1)))))
+        }
+        entity.send(command(4, "register", "AddItem", addItem("abc", "apple", 1)))
+        entity.expect(reply(4, EmptyJavaMessage, update(domainCart(Item("abc", "apple", 1)))))
+        thresholdService.expectLogWarning("State of value entity [register] [register] has grown to") {
+          entity.send(command(5, "register", "AddItem", addItem(large, "apple", 1)))
+          entity.expect(reply(5, EmptyJavaMessage, update(domainCart(Item(large, "apple", 1)))))
+        }
+        entity.passivate()
+      } finally {
+        thresholdProtocol.terminate()
+        thresholdService.terminate()
+      }
+    }
+
+    "warn when the initial state is already beyond the size warning threshold" in {
+      val thresholdService = Register.testService("value-entity.state-size-warning-threshold = 200 B")
+      val thresholdProtocol = TestProtocol(thresholdService.port)
+      val large = "a" * 300
+      try {
+        val entity = thresholdProtocol.valueEntity.connect()
+        thresholdService.expectLogWarning("State of value entity [register] [register] has grown to") {
+          entity.send(init(ShoppingCart.Name, "register", state(domainCart(Item(large, "apple", 1)))))
+          entity.send(command(1, "register", "GetCart", getShoppingCart("register")))
+          entity.expectNext().reply.isDefined shouldBe true
+        }
+        entity.passivate()
+      } finally {
+        thresholdProtocol.terminate()
+        thresholdService.terminate()
+      }
+    }
+
+    "run the entity on the user function dispatcher" in {
+      val entity = registerProtocol.valueEntity.connect()
+      entity.send(init(ShoppingCart.Name, "register"))
+      entity.send(command(1, "register", "GetCart", getShoppingCart("register")))
+      val payload = entity.expectNext().reply.get.clientAction.get.action.reply.get.payload.get
+      Register.threadName(payload) should include("user-function-dispatcher")
+      entity.passivate()
+    }
   }
 }
 
@@ -234,4 +350,90 @@ object ValueEntitiesImplSpec {
         ShoppingCartDomain.Cart.newBuilder.addAllItems(domainLineItems(items)).build
     }
   }
+
+  /**
+   * An entity for the shopping cart service that replaces its state with the added item, or with a JSON state when the
+   * name of the item is [[Register.Json]].
+   */
+  object Register {
+    import com.example.valueentity.shoppingcart.ShoppingCartApi
+    import com.example.valueentity.shoppingcart.domain.ShoppingCartDomain
+    import com.google.protobuf.Descriptors
+    import com.google.protobuf.Empty
+    import com.google.protobuf.EmptyProto
+    import com.google.protobuf.any.{ Any => ScalaPbAny }
+    import ShoppingCart.Item
+    import ShoppingCart.Protocol.cart
+    import ShoppingCart.Protocol.domainCart
+
+    val Json = "json"
+
+    def json(field: String): com.google.protobuf.Any = {
+      val jsonable = new MyJsonable
+      jsonable.field = field
+      JsonSupport.encodeJson(jsonable)
+    }
+
+    /** The name of the thread that the entity handled GetCart on, from the payload of its reply. */
+    def threadName(payload: ScalaPbAny): String =
+      ScalaPbAny.toJavaProto(payload).unpack(classOf[ShoppingCartApi.Cart]).getItems(0).getName
+
+    def testService: TestValueService = TestValueEntity.service(new RegisterEntityProvider)
+
+    def testService(additionalConfig: String): TestValueService =
+      TestValueEntity.service(new RegisterEntityProvider, additionalConfig)
+
+    class RegisterEntity extends ValueEntity[Any] {
+      // changed in place and encoded again for every JSON update
+      private val jsonable = new MyJsonable
+
+      override def emptyState(): Any = null
+
+      def addItem(item: ShoppingCartApi.AddLineItem): ValueEntity.Effect[Empty] = {
+        val newState =
+          if (item.getName == Json) {
+            jsonable.field = item.getProductId
+            JsonSupport.encodeJson(jsonable)
+          } else domainCart(Item(item.getProductId, item.getName, item.getQuantity))
+        effects().updateState(newState).thenReply(Empty.getDefaultInstance)
+      }
+
+      def removeCart(): ValueEntity.Effect[Empty] =
+        effects().deleteState().thenReply(Empty.getDefaultInstance)
+
+      // replies with the name of the thread that the entity runs on
+      def getCart(): ValueEntity.Effect[ShoppingCartApi.Cart] =
+        effects().reply(cart(Item("thread", Thread.currentThread().getName, 1)))
+    }
+
+    class RegisterEntityHandler(registerEntity: RegisterEntity)
+        extends ValueEntityHandler[Any, RegisterEntity](registerEntity) {
+      override protected def handleCommand(
+          commandName: String,
+          state: Any,
+          command: Any,
+          context: CommandContext): ValueEntity.Effect[_] =
+        commandName match {
+          case "AddItem"    => entity.addItem(command.asInstanceOf[ShoppingCartApi.AddLineItem])
+          case "RemoveCart" => entity.removeCart()
+          case "GetCart"    => entity.getCart()
+          case _            => throw ValueEntityHandler.CommandHandlerNotFound(commandName)
+        }
+    }
+
+    class RegisterEntityProvider extends ValueEntityProvider[Any, RegisterEntity] {
+      override def options(): ValueEntityOptions = ValueEntityOptions.defaults()
+
+      override def serviceDescriptor(): Descriptors.ServiceDescriptor =
+        ShoppingCartApi.getDescriptor.findServiceByName("ShoppingCartService")
+
+      override def entityType(): String = "register"
+
+      override def newHandler(context: ValueEntityContext): ValueEntityHandler[Any, RegisterEntity] =
+        new RegisterEntityHandler(new RegisterEntity)
+
+      override def additionalDescriptors(): Array[Descriptors.FileDescriptor] =
+        Array(ShoppingCartApi.getDescriptor, ShoppingCartDomain.getDescriptor, EmptyProto.getDescriptor)
+    }
+  }
 }
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2021 Lightbend Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.akkaserverless.javasdk.impl.view
+
+import akka.actor.ActorSystem
+import akka.stream.scaladsl.Sink
+import akka.stream.scaladsl.Source
+import com.akkaserverless.javasdk.Context
+import com.akkaserverless.javasdk.ServiceCallFactory
+import com.akkaserverless.javasdk.impl.AnySupport
+import com.akkaserverless.javasdk.impl.ViewFactory
+import com.akkaserverless.javasdk.shoppingcart.ShoppingCartViewModel
+import com.akkaserverless.javasdk.view.View
+import com.akkaserverless.javasdk.view.ViewCreationContext
+import com.akkaserverless.protocol.{ view => pv }
+import org.scalatest.BeforeAndAfterAll
+import org.scalatest.matchers.should.Matchers
+import org.scalatest.wordspec.AnyWordSpec
+
+import java.util.Optional
+import scala.concurrent.Await
+import scala.concurrent.duration._
+
+class ViewsImplSpec extends AnyWordSpec with Matchers with BeforeAndAfterAll {
+  import ViewsImplSpec._
+
+  private implicit val system: ActorSystem = ActorSystem("ViewsImplSpec")
+
+  private val serviceDescriptor = ShoppingCartViewModel.getDescriptor.findServiceByName("ShoppingCartViewService")
+  private val serviceName = serviceDescriptor.getFullName
+  private val anySupport = new AnySupport(Array(ShoppingCartViewModel.getDescriptor), getClass.getClassLoader)
+
+  override protected def afterAll(): Unit = {
+    super.afterAll()
+    system.terminate()
+  }
+
+  private def create(factory: ViewFactory): pv.Views = {
+    val services = Map(serviceName -> new ViewService(Optional.of(factory), serviceDescriptor, anySupport, "carts"))
+    new ViewsImpl(
+      system,
+      services,
+      new Context {
+        override def serviceCallFactory(): ServiceCallFactory = ???
+      })
+  }
+
+  "The views service" should {
+
+    "handle updates on the user function dispatcher" in {
+      val views = create(new ViewFactory {
+        override def create(context: ViewCreationContext): ViewHandler[_, _] = new ThreadNameViewHandler
+      })
+      val receive = pv.ReceiveEvent(
+        serviceName = serviceName,
+        commandName = "ProcessAdded",
+        payload = Some(anySupport.encodeScala("added")),
+        initialTable = "carts",
+        key = "cart")
+
+      val out = Await.result(
+        views.handle(Source.single(pv.ViewStreamIn(pv.ViewStreamIn.Message.Receive(receive)))).runWith(Sink.head),
+        10.seconds)
+
+      val state = out.message.upsert.get.row.get.value.get
+      anySupport.decode(state).asInstanceOf[String] should include("user-function-dispatcher")
+    }
+  }
+}
+
+object ViewsImplSpec {
+
+  // a view whose state is the name of the thread that handled the last update
+  private class ThreadNameView extends View[String] {
+    override def emptyState(): String = ""
+
+    def update(): View.UpdateEffect[String] = effects().updateState(Thread.currentThread().getName)
+  }
+
+  private class ThreadNameViewHandler extends ViewHandler[String, ThreadNameView](new ThreadNameView) {
+    override def handleUpdate(commandName: String, state: String, event: Any): View.UpdateEffect[String] =
+      view.update()
+  }
+}